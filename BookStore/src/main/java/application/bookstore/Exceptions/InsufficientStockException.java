@@ -0,0 +1,22 @@
+package application.bookstore.Exceptions;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class InsufficientStockException extends Exception{
+    // Custom exception for a checkout line that another till has already sold out
+    private static final long serialVersionUID = 1L;
+
+    //A private copy declared as a serializable type; callers only ever see it read-only
+    private final LinkedHashMap<String, Integer> availableByIsbn;
+
+    public InsufficientStockException(String message, Map<String, Integer> availableByIsbn) {
+        super(message);
+        this.availableByIsbn = new LinkedHashMap<>(availableByIsbn);
+    }
+
+    public Map<String, Integer> getAvailableByIsbn() {
+        return Collections.unmodifiableMap(availableByIsbn);
+    }
+}
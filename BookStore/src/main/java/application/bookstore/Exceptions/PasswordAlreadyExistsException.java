@@ -1,9 +0,0 @@
-package application.bookstore.Exceptions;
-
-public class PasswordAlreadyExistsException extends Exception{
-    // Custom exception for password collision
-    public PasswordAlreadyExistsException() {
-        super("Password already exists for another user.");
-    }
-}
-
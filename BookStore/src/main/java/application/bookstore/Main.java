@@ -1,6 +1,11 @@
 package application.bookstore;
 
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.auxiliaries.FxStallWatchdog;
+import application.bookstore.controllers.BillWriter;
+import application.bookstore.controllers.SalesRollups;
 import application.bookstore.views.LoginView;
 import javafx.application.Application;
 import javafx.scene.Scene;
@@ -14,6 +19,9 @@ import java.sql.*;
 public class Main extends Application implements DatabaseConnector {
 
     public void start(Stage stage)  {
+        FxStallWatchdog.start();
+        //Sales left pending by a run that stopped before applying them
+        SalesRollups.applyPendingAsync();
         LoginView lg=new LoginView();
         stage.setTitle("Bookstore");
 
@@ -21,6 +29,14 @@ public class Main extends Application implements DatabaseConnector {
         stage.show();
 
     }
+
+    @Override
+    public void stop() {
+        FxStallWatchdog.stop();
+        DataAccess.shutdown();
+        BillWriter.shutdown();
+        ConnectionPool.shutdownPool();
+    }
     public static void main(String[] args) {
         launch();
     }
@@ -0,0 +1,325 @@
+package application.bookstore.auxiliaries;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Bounded pool of MySQL connections shared by every model, controller and chart.
+//Callers borrow with ConnectionPool.getConnection() and give the connection back by closing it,
+//so the usual try-with-resources blocks keep working without knowing about the pool.
+public class ConnectionPool implements DatabaseConnector {
+    private static ConnectionPool instance;
+
+    private final int maxSize;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+
+    private ConnectionPool(int maxSize) {
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            System.err.println("MySQL driver not found on the classpath: " + e.getMessage());
+        }
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, POOL_HOUSEKEEPING_INTERVAL_MS,
+                POOL_HOUSEKEEPING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new ConnectionPool(POOL_MAX_SIZE);
+        }
+        return instance;
+    }
+
+    public static Connection getConnection() throws SQLException {
+        return getInstance().borrow();
+    }
+
+    public static synchronized void shutdownPool() {
+        if (instance != null) {
+            System.out.println("Closing " + instance);
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    public Connection borrow() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(POOL_BORROW_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + POOL_BORROW_TIMEOUT_MS + "ms waiting for a database connection ("
+                        + borrowed.size() + "/" + maxSize + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled;
+            //Validate on borrow, dropping connections MySQL has already closed on us
+            while ((pooled = idle.pollFirst()) != null && !pooled.isUsable()) {
+                pooled.closePhysical();
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(JDBC_URL, USER, PASSWORD));
+                createdCount.incrementAndGet();
+            }
+            pooled.lease();
+            borrowed.add(pooled);
+            borrowCount.incrementAndGet();
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        if (!borrowed.remove(pooled)) {
+            return;
+        }
+        try {
+            if (shutdown || !pooled.reset()) {
+                pooled.closePhysical();
+            } else {
+                pooled.lastReturned = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void housekeeping() {
+        long now = System.currentTimeMillis();
+
+        for (PooledConnection pooled : borrowed) {
+            if (!pooled.leakReported && now - pooled.leasedAt > POOL_LEAK_THRESHOLD_MS) {
+                pooled.leakReported = true;
+                leakCount.incrementAndGet();
+                System.err.println("Possible connection leak: connection borrowed " + (now - pooled.leasedAt)
+                        + "ms ago has not been closed. Borrowed at:");
+                pooled.leaseTrace.printStackTrace();
+            }
+        }
+
+        //Oldest idle connections sit at the tail of the deque
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext() && idle.size() > POOL_MIN_IDLE) {
+            PooledConnection pooled = iterator.next();
+            if (now - pooled.lastReturned > POOL_IDLE_TIMEOUT_MS && idle.remove(pooled)) {
+                pooled.closePhysical();
+                evictedCount.incrementAndGet();
+            }
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.get();
+        return borrows == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / borrows;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", max=" + maxSize +
+                ", waiting=" + getWaitingCount() +
+                ", borrows=" + getBorrowCount() +
+                ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                ", maxWaitMs=" + String.format("%.3f", getMaxWaitMillis()) +
+                ", timeouts=" + getTimeoutCount() +
+                ", created=" + getCreatedCount() +
+                ", evicted=" + getEvictedCount() +
+                ", leaks=" + getLeakCount() +
+                '}';
+    }
+
+    //One physical connection. Each borrow hands out a fresh proxy handle so a stale
+    //reference that is closed twice, or used after close, can't touch the next borrower's session.
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long leasedAt;
+        private volatile long lastReturned;
+        private volatile Throwable leaseTrace;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.lastReturned = System.currentTimeMillis();
+        }
+
+        void lease() {
+            leasedAt = System.currentTimeMillis();
+            leaseTrace = new Throwable("Connection borrowed by " + Thread.currentThread().getName());
+            leakReported = false;
+        }
+
+        boolean isUsable() {
+            try {
+                return !physical.isClosed() && physical.isValid(POOL_VALIDATION_TIMEOUT_S);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        //Undo anything the borrower left behind so the next one gets a clean autocommit session
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing pooled connection: " + e.getMessage());
+            }
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle(this));
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed = false;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
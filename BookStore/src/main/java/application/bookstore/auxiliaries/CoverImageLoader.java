@@ -0,0 +1,86 @@
+package application.bookstore.auxiliaries;
+
+import application.bookstore.models.Book;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+//Loads book covers for table cells only when a cell actually shows them. Decoding happens on
+//JavaFX's background loader at the size the cell draws, so a full-resolution cover is never
+//held in memory for a 50x50 thumbnail, and a placeholder is shown until the decode finishes.
+public class CoverImageLoader {
+    public static final int THUMBNAIL_SIZE = 50;
+
+    private static final String PENDING = "coverImageLoader.pending";
+
+    private static Image placeholder;
+
+    public static void loadInto(ImageView imageView, Book book) {
+        cancel(imageView);
+        String isbn = book.getISBN();
+        String url = book.getImageUrl();
+        if (url == null || url.isEmpty()) {
+            imageView.setImage(getPlaceholder());
+            return;
+        }
+        //Decoded covers are shared through ImageCache, so a cover already seen is shown immediately
+        Image image = ImageCache.getInstance().get(isbn, THUMBNAIL_SIZE, url);
+        if (image.getProgress() >= 1 && !image.isError()) {
+            imageView.setImage(image);
+            return;
+        }
+        imageView.setImage(getPlaceholder());
+        ChangeListener<Number> listener = (observable, oldValue, newValue) -> {
+            if (newValue.doubleValue() >= 1) {
+                cancel(imageView);
+                if (!image.isError()) {
+                    imageView.setImage(image);
+                }
+            }
+        };
+        image.progressProperty().addListener(listener);
+        imageView.getProperties().put(PENDING, new Pending(image, listener));
+    }
+
+    //Empties a view whose cell no longer shows a book
+    public static void clear(ImageView imageView) {
+        cancel(imageView);
+        imageView.setImage(null);
+    }
+
+    //The cached Image is shared by every cell showing that cover, so the view's listener on it is removed
+    //as soon as the view is reused or the decode finishes, leaving at most one per view
+    private static void cancel(ImageView imageView) {
+        if (imageView.getProperties().remove(PENDING) instanceof Pending pending) {
+            pending.image.progressProperty().removeListener(pending.listener);
+        }
+    }
+
+    public static Image getPlaceholder() {
+        if (placeholder == null) {
+            WritableImage image = new WritableImage(THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+            PixelWriter writer = image.getPixelWriter();
+            for (int x = 0; x < THUMBNAIL_SIZE; x++) {
+                for (int y = 0; y < THUMBNAIL_SIZE; y++) {
+                    boolean border = x == 0 || y == 0 || x == THUMBNAIL_SIZE - 1 || y == THUMBNAIL_SIZE - 1;
+                    writer.setColor(x, y, border ? Color.LIGHTGRAY : Color.WHITESMOKE);
+                }
+            }
+            placeholder = image;
+        }
+        return placeholder;
+    }
+
+    private static class Pending {
+        private final Image image;
+        private final ChangeListener<Number> listener;
+
+        Pending(Image image, ChangeListener<Number> listener) {
+            this.image = image;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package application.bookstore.auxiliaries;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+//Imports many covers at once for catalog migrations and shipments. Each cover is read, hashed and transcoded
+//on one of a fixed number of workers, and at most MAX_QUEUED_PER_THREAD covers per worker are waiting at any time,
+//so submitting thousands blocks the producer instead of filling the heap with queued images.
+//Covers go into CoverStore, so a cover whose bytes are already stored is never decoded again, and two workers
+//given the same bytes at once let the first one write the blob. Blobs are written to a temp file and renamed.
+//
+//  java application.bookstore.auxiliaries.CoverImporter <folder> [threads]
+//imports every <ISBN>.png/jpg/gif in the folder and points the matching books at their stored covers.
+//File names may be ISBN-10 or ISBN-13, with or without hyphens; files that match no book are listed as skipped.
+public class CoverImporter implements AutoCloseable {
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int MAX_QUEUED_PER_THREAD = 4;
+
+    private final ExecutorService workers;
+    private final Semaphore slots;
+    //Content hash -> the store reference of the first cover with those bytes in this run
+    private final Map<String, CompletableFuture<String>> coversByHash = new ConcurrentHashMap<>();
+    private volatile BiConsumer<Integer, Integer> onProgress;
+
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger deduplicated = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    public CoverImporter() {
+        this(DEFAULT_THREADS);
+    }
+
+    public CoverImporter(int threads) {
+        this.slots = new Semaphore(threads * MAX_QUEUED_PER_THREAD);
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "cover-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Called from a worker thread with (finished, submitted) after every cover; wrap in Platform.runLater for the UI
+    public void setOnProgress(BiConsumer<Integer, Integer> onProgress) {
+        this.onProgress = onProgress;
+    }
+
+    //Queues one cover and returns its store reference for Book.bookURL.
+    //Blocks while the workers are too far behind, so never call it on the FX thread.
+    public Future<String> submit(String isbn, File source) throws InterruptedException {
+        slots.acquire();
+        submitted.incrementAndGet();
+        try {
+            return workers.submit(() -> {
+                try {
+                    String cover = importCover(source);
+                    ImageCache.getInstance().invalidate(isbn);
+                    completed.incrementAndGet();
+                    return cover;
+                } catch (IOException | RuntimeException e) {
+                    failed.incrementAndGet();
+                    throw e;
+                } finally {
+                    slots.release();
+                    BiConsumer<Integer, Integer> listener = onProgress;
+                    if (listener != null) {
+                        listener.accept(completed.get() + failed.get(), submitted.get());
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            submitted.decrementAndGet();
+            throw e;
+        }
+    }
+
+    //Imports ISBN -> source file and waits for all of them; the result maps each stored ISBN to its reference
+    public Map<String, String> importAll(Map<String, File> sources) throws InterruptedException {
+        Map<String, Future<String>> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, File> source : sources.entrySet()) {
+            pending.put(source.getKey(), submit(source.getKey(), source.getValue()));
+        }
+        Map<String, String> covers = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<String>> cover : pending.entrySet()) {
+            try {
+                covers.put(cover.getKey(), cover.getValue().get());
+            } catch (ExecutionException e) {
+                System.out.println("Cover for " + cover.getKey() + " not imported: " + e.getCause().getMessage());
+            }
+        }
+        return covers;
+    }
+
+    private String importCover(File source) throws IOException {
+        byte[] bytes = Files.readAllBytes(source.toPath());
+        bytesRead.addAndGet(bytes.length);
+        String hash = CoverStore.sha256(bytes);
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> first = coversByHash.putIfAbsent(hash, mine);
+        if (first != null) {
+            //The first cover with these bytes is already being written by a running worker, so waiting can't deadlock
+            try {
+                String reference = first.join();
+                deduplicated.incrementAndGet();
+                return reference;
+            } catch (RuntimeException e) {
+                return CoverStore.store(bytes, hash);
+            }
+        }
+        try {
+            String reference = CoverStore.store(bytes, hash);
+            mine.complete(reference);
+            return reference;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    //Waits for the queued covers to finish
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.HOURS);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public double getProgress() {
+        int total = submitted.get();
+        return total == 0 ? 0 : (double) (completed.get() + failed.get()) / total;
+    }
+
+    public int getCompletedCount() {
+        return completed.get();
+    }
+
+    public int getFailedCount() {
+        return failed.get();
+    }
+
+    public int getDeduplicatedCount() {
+        return deduplicated.get();
+    }
+
+    public double getCoversPerSecond() {
+        return completed.get() / ((System.nanoTime() - startNanos) / 1_000_000_000.0);
+    }
+
+    public double getMegabytesPerSecond() {
+        return bytesRead.get() / 1_048_576.0 / ((System.nanoTime() - startNanos) / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "CoverImporter{" +
+                "submitted=" + submitted.get() +
+                ", completed=" + completed.get() +
+                ", deduplicated=" + deduplicated.get() +
+                ", failed=" + failed.get() +
+                ", MB=" + String.format("%.1f", bytesRead.get() / 1_048_576.0) +
+                ", coversPerSec=" + String.format("%.1f", getCoversPerSecond()) +
+                ", MBPerSec=" + String.format("%.1f", getMegabytesPerSecond()) +
+                '}';
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: CoverImporter <folder> [threads]");
+            return;
+        }
+        Map<String, File> sources = new LinkedHashMap<>();
+        List<String> skipped = new ArrayList<>();
+        CoverImporter importer = new CoverImporter(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_THREADS);
+        try (importer) {
+            //Normalized ISBN -> the ISBN as the Book table stores it, which may be hyphenated
+            Map<String, String> catalogIsbns = new HashMap<>();
+            try (Connection connection = ConnectionPool.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT ISBN FROM Book")) {
+                while (resultSet.next()) {
+                    String stored = resultSet.getString("ISBN");
+                    catalogIsbns.put(Isbn.normalize(stored), stored);
+                }
+            }
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(args[0]), "*.{png,jpg,jpeg,gif,PNG,JPG,JPEG,GIF}")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    String isbn = Isbn.normalize(name.substring(0, name.lastIndexOf('.')));
+                    String stored = catalogIsbns.get(isbn);
+                    if (!Isbn.isValid(isbn)) {
+                        skipped.add(name + ": not named after an ISBN");
+                    } else if (stored == null) {
+                        skipped.add(name + ": no book with ISBN " + isbn);
+                    } else if (sources.containsKey(stored)) {
+                        skipped.add(name + ": " + sources.get(stored).getName() + " is already the cover for " + stored);
+                    } else {
+                        sources.put(stored, file.toFile());
+                    }
+                }
+            }
+            for (String reason : skipped) {
+                System.out.println("Skipping " + reason);
+            }
+
+            importer.setOnProgress((done, total) -> {
+                if (done % 100 == 0) {
+                    System.out.println(done + "/" + total + " covers, " + String.format("%.1f", importer.getCoversPerSecond()) + "/s");
+                }
+            });
+            Map<String, String> covers = importer.importAll(sources);
+
+            try (Connection connection = ConnectionPool.getConnection();
+                 PreparedStatement preparedStatement = connection.prepareStatement("UPDATE Book SET bookURL = ? WHERE ISBN = ?")) {
+                for (Map.Entry<String, String> cover : covers.entrySet()) {
+                    preparedStatement.setString(1, cover.getValue());
+                    preparedStatement.setString(2, cover.getKey());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            ConnectionPool.shutdownPool();
+        }
+        System.out.println(skipped.size() + " files skipped");
+        System.out.println(importer);
+    }
+}
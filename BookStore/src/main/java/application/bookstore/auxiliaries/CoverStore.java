@@ -0,0 +1,239 @@
+package application.bookstore.auxiliaries;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Content-addressed cover storage. A cover is stored once per SHA-256 of its bytes as blobs/ab/<hash>.png under
+//the image root, so editions sharing a cover and repeated saves of the same file share one blob.
+//Book.bookURL holds the blob's path relative to the root, which is resolved to a URL only when an image is loaded,
+//so the root can move: it is the bookstore.imageRoot system property, or BookImages in the working directory.
+//Database/cover_store.sql counts the books per blob; collectGarbage deletes the blobs no book uses any more.
+//
+//  java application.bookstore.auxiliaries.CoverStore migrate|gc
+//migrate moves covers saved under the old absolute file: URLs into the store, gc also removes stray blob files.
+//Deleting a book only releases its count, so gc is meant to run on a schedule (e.g. nightly) to free the files.
+public class CoverStore implements DatabaseConnector {
+    public static final String ROOT_PROPERTY = "bookstore.imageRoot";
+    private static final String BLOB_FOLDER = "blobs";
+    //A blob file without a cover_blob row may belong to a book that is being saved right now
+    private static final Duration ORPHAN_GRACE = Duration.ofHours(1);
+
+    private static volatile Path root;
+
+    public static Path getRoot() {
+        if (root == null) {
+            String configured = System.getProperty(ROOT_PROPERTY);
+            root = (configured != null ? Paths.get(configured) : Paths.get(System.getProperty("user.dir"), "BookImages"))
+                    .toAbsolutePath();
+        }
+        return root;
+    }
+
+    public static void setRoot(Path folder) {
+        root = folder.toAbsolutePath();
+    }
+
+    //Stores the file's bytes unless a blob with the same content exists, and returns the reference to put in bookURL
+    public static String store(File sourceImageFile) throws IOException {
+        return store(Files.readAllBytes(sourceImageFile.toPath()));
+    }
+
+    public static String store(byte[] imageBytes) throws IOException {
+        return store(imageBytes, sha256(imageBytes));
+    }
+
+    //For callers that already hashed the bytes
+    public static String store(byte[] imageBytes, String hash) throws IOException {
+        String reference = BLOB_FOLDER + "/" + hash.substring(0, 2) + "/" + hash + ".png";
+        Path blob = getRoot().resolve(reference);
+        if (!Files.exists(blob)) {
+            ThumbnailStore.writeCover(blob, imageBytes);
+        } else {
+            //Keeps collectGarbage from deleting a blob that is about to be used again
+            Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+        }
+        return reference;
+    }
+
+    //The URL to load a bookURL from: store references are resolved against the root, older URLs are returned as they are
+    public static String toUrl(String reference) {
+        if (reference == null || reference.isEmpty() || !isStored(reference)) {
+            return reference;
+        }
+        return getRoot().resolve(reference).toUri().toString();
+    }
+
+    public static boolean isStored(String reference) {
+        return reference != null && reference.startsWith(BLOB_FOLDER + "/");
+    }
+
+    //The hash in a store reference, as Database/cover_store.sql derives it for Book.cover_hash
+    public static String hashOf(String reference) {
+        if (!isStored(reference)) {
+            return null;
+        }
+        String name = Paths.get(reference).getFileName().toString();
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //Deletes every blob no book refers to any more. The row is removed first and only while its count is still 0,
+    //so a book that picked up the cover in the meantime keeps it.
+    public static int collectGarbage() throws SQLException {
+        List<String> unused = new ArrayList<>();
+        int deleted = 0;
+        try (Connection connection = ConnectionPool.getConnection()) {
+            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT hash FROM cover_blob WHERE refs <= 0");
+                 ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    unused.add(resultSet.getString("hash"));
+                }
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement("DELETE FROM cover_blob WHERE hash = ? AND refs <= 0")) {
+                for (String hash : unused) {
+                    preparedStatement.setString(1, hash);
+                    if (preparedStatement.executeUpdate() == 1 && deleteBlob(hash)) {
+                        deleted++;
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    //A blob stored again within the grace period is kept; if its book is saved the trigger counts it again,
+    //otherwise sweepStrayBlobs removes it later
+    private static boolean deleteBlob(String hash) {
+        Path blob = getRoot().resolve(BLOB_FOLDER).resolve(hash.substring(0, 2)).resolve(hash + ".png");
+        try {
+            if (Files.exists(blob) && Files.getLastModifiedTime(blob).toInstant().isAfter(Instant.now().minus(ORPHAN_GRACE))) {
+                return false;
+            }
+            ThumbnailStore.deleteCover(blob);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    //Blob files that never made it into cover_blob, e.g. because the book was not saved after choosing its cover
+    public static int sweepStrayBlobs() throws SQLException, IOException {
+        Set<String> known = new HashSet<>();
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("SELECT hash FROM cover_blob");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                known.add(resultSet.getString("hash"));
+            }
+        }
+        Path blobs = getRoot().resolve(BLOB_FOLDER);
+        if (!Files.isDirectory(blobs)) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(ORPHAN_GRACE);
+        int deleted = 0;
+        try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(blobs)) {
+            for (Path prefix : prefixes) {
+                if (!Files.isDirectory(prefix)) {
+                    continue;
+                }
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(prefix, "*.png")) {
+                    for (Path file : files) {
+                        String name = file.getFileName().toString();
+                        if (!known.contains(name.substring(0, name.length() - 4))
+                                && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                            ThumbnailStore.deleteCover(file);
+                            deleted++;
+                        }
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    //Moves covers saved before the store existed into it and points their books at the blobs
+    public static int migrate() throws SQLException {
+        Map<String, String> legacy = new LinkedHashMap<>();
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     "SELECT ISBN, bookURL FROM Book WHERE bookURL IS NOT NULL AND bookURL <> '' AND bookURL NOT LIKE 'blobs/%'");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                legacy.put(resultSet.getString("ISBN"), resultSet.getString("bookURL"));
+            }
+        }
+        int migrated = 0;
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("UPDATE Book SET bookURL = ? WHERE ISBN = ?")) {
+            for (Map.Entry<String, String> book : legacy.entrySet()) {
+                try {
+                    Path file = legacyPath(book.getValue());
+                    preparedStatement.setString(1, store(Files.readAllBytes(file)));
+                    preparedStatement.setString(2, book.getKey());
+                    preparedStatement.addBatch();
+                    migrated++;
+                } catch (IOException | IllegalArgumentException | java.nio.file.FileSystemNotFoundException e) {
+                    System.out.println("Skipping " + book.getKey() + ": " + e.getMessage());
+                }
+            }
+            preparedStatement.executeBatch();
+        }
+        return migrated;
+    }
+
+    //Older covers were saved as "file:" + two separators + the absolute path, which is not always a valid URI
+    private static Path legacyPath(String url) {
+        if (!url.startsWith("file:")) {
+            return Paths.get(URI.create(url));
+        }
+        String path = url.substring("file:".length());
+        String withoutSeparators = path.replaceFirst("^[/\\\\]+", "");
+        return Paths.get(withoutSeparators.matches("[A-Za-z]:.*") ? withoutSeparators : path);
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 1) {
+            System.out.println("Usage: CoverStore migrate|gc");
+            return;
+        }
+        try {
+            if (args[0].equalsIgnoreCase("migrate")) {
+                System.out.println(migrate() + " covers moved into " + getRoot());
+            }
+            System.out.println(collectGarbage() + " unused covers deleted, "
+                    + sweepStrayBlobs() + " stray blob files deleted");
+        } finally {
+            ConnectionPool.shutdownPool();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package application.bookstore.auxiliaries;
+
+import javafx.concurrent.Task;
+import javafx.scene.Scene;
+import javafx.scene.control.ProgressIndicator;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+//Runs JDBC work off the JavaFX application thread. The pool has as many threads as ConnectionPool has
+//connections, so queued work waits here rather than holding a thread blocked on a pool borrow.
+//Results and errors are handed back on the FX thread; work started by a screen is cancelled when the
+//user navigates away from it so a late result never touches a scene that is no longer shown.
+public class DataAccess implements DatabaseConnector {
+    private static final long SHUTDOWN_WAIT_SECONDS = 15;
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+    private static final ThreadFactory threadFactory = runnable -> {
+        Thread thread = new Thread(runnable, "data-access-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+    private static final ExecutorService executor = Executors.newFixedThreadPool(POOL_MAX_SIZE, threadFactory);
+
+    //onSucceeded and onFailed run on the FX thread and are skipped once the task has been cancelled
+    public static <T> Task<T> submit(Callable<T> work, Consumer<T> onSucceeded, Consumer<Throwable> onFailed) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        task.setOnSucceeded(event -> onSucceeded.accept(task.getValue()));
+        task.setOnFailed(event -> {
+            Throwable error = task.getException();
+            error.printStackTrace();
+            onFailed.accept(error);
+        });
+        executor.execute(task);
+        return task;
+    }
+
+    public static <T> CompletableFuture<T> supplyAsync(Callable<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(work.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    //Indeterminate spinner shown only while the task runs
+    public static ProgressIndicator busyIndicator(Task<?> task) {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setMaxSize(60, 60);
+        indicator.visibleProperty().bind(task.runningProperty());
+        indicator.managedProperty().bind(task.runningProperty());
+        return indicator;
+    }
+
+    //Cancels the task when the scene is taken off its window, which is what stage.setScene does on navigation
+    public static void cancelOnLeave(Task<?> task, Scene scene) {
+        scene.windowProperty().addListener((observable, oldWindow, newWindow) -> {
+            if (newWindow == null) {
+                task.cancel(true);
+            }
+        });
+    }
+
+    //Lets queued and running work finish rather than interrupting it, so a checkout that is mid-transaction
+    //still commits and hands its receipt to BillWriter before the application drains that
+    public static void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Data access work still running after " + SHUTDOWN_WAIT_SECONDS + "s, exiting anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
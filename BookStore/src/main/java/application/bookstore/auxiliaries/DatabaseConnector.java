@@ -8,11 +8,29 @@ public interface DatabaseConnector {
      String PASSWORD = "workbench12$"; */
 
 
-     String JDBC_URL = "jdbc:mysql://127.0.0.1:3306/new_schema";
+     //rewriteBatchedStatements lets the driver send an addBatch/executeBatch as one multi-row statement.
+     //cachePrepStmts/useServerPrepStmts keep prepared statements parsed on the server per pooled connection,
+     //so the same query from the login, the pager or a checkout isn't prepared again each time.
+     String JDBC_URL = "jdbc:mysql://127.0.0.1:3306/new_schema?rewriteBatchedStatements=true"
+             + "&cachePrepStmts=true&useServerPrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
      String USER = "root";
       String PASSWORD = "11112003";
 
+     //Connection pool settings used by ConnectionPool
+     int POOL_MAX_SIZE = 10;
+     int POOL_MIN_IDLE = 2;
+     long POOL_BORROW_TIMEOUT_MS = 5_000;
+     int POOL_VALIDATION_TIMEOUT_S = 2;
+     long POOL_IDLE_TIMEOUT_MS = 5 * 60_000;
+     long POOL_LEAK_THRESHOLD_MS = 60_000;
+     long POOL_HOUSEKEEPING_INTERVAL_MS = 30_000;
+
+     //How the bookstore screen holds the catalog: "all" keeps every book in memory (BookCatalog),
+     //"paged" reads CATALOG_PAGE_SIZE rows at a time and keeps at most CATALOG_MAX_RESIDENT_PAGES (BookPager).
+     //Choose with -Dbookstore.catalog.mode=paged
+     String CATALOG_MODE = System.getProperty("bookstore.catalog.mode", "all");
+     int CATALOG_PAGE_SIZE = 100;
+     int CATALOG_MAX_RESIDENT_PAGES = 5;
 
 }
 
-
@@ -0,0 +1,109 @@
+package application.bookstore.auxiliaries;
+
+import javafx.application.Platform;
+
+//Logs whenever the JavaFX application thread stops processing events for longer than the threshold,
+//with the FX thread's stack at that moment, so blocking work left on the UI thread shows up in the log
+//instead of as a window that "sometimes hangs". A heartbeat is posted with Platform.runLater and the
+//watchdog measures how long it waits to run.
+public class FxStallWatchdog {
+    public static final long DEFAULT_THRESHOLD_MS = 250;
+    private static final long CHECK_INTERVAL_MS = 50;
+
+    private static FxStallWatchdog instance;
+
+    private final long thresholdNanos;
+    private volatile Thread fxThread;
+    private volatile long heartbeatPostedAt;
+    private volatile boolean stallReported;
+    private volatile boolean running = true;
+
+    private long stallCount;
+    private long longestStallNanos;
+
+    private FxStallWatchdog(long thresholdMs) {
+        this.thresholdNanos = thresholdMs * 1_000_000;
+    }
+
+    public static synchronized void start() {
+        start(DEFAULT_THRESHOLD_MS);
+    }
+
+    public static synchronized void start(long thresholdMs) {
+        if (instance != null) {
+            return;
+        }
+        instance = new FxStallWatchdog(thresholdMs);
+        Platform.runLater(() -> instance.fxThread = Thread.currentThread());
+        Thread thread = new Thread(instance::watch, "fx-stall-watchdog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public static synchronized void stop() {
+        if (instance != null) {
+            instance.running = false;
+            System.out.println(instance);
+            instance = null;
+        }
+    }
+
+    private void watch() {
+        while (running) {
+            long now = System.nanoTime();
+            if (heartbeatPostedAt == 0) {
+                heartbeatPostedAt = now;
+                Platform.runLater(this::heartbeat);
+            } else if (!stallReported && now - heartbeatPostedAt > thresholdNanos) {
+                stallReported = true;
+                reportStall(now - heartbeatPostedAt);
+            }
+            try {
+                Thread.sleep(CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void heartbeat() {
+        long waited = System.nanoTime() - heartbeatPostedAt;
+        if (stallReported) {
+            synchronized (this) {
+                stallCount++;
+                longestStallNanos = Math.max(longestStallNanos, waited);
+            }
+            System.out.println("FX thread responsive again after " + waited / 1_000_000 + " ms");
+        }
+        stallReported = false;
+        heartbeatPostedAt = 0;
+    }
+
+    private void reportStall(long nanos) {
+        StringBuilder message = new StringBuilder("FX thread stalled for more than " + nanos / 1_000_000 + " ms");
+        Thread thread = fxThread;
+        if (thread != null) {
+            for (StackTraceElement element : thread.getStackTrace()) {
+                message.append("\n\tat ").append(element);
+            }
+        }
+        System.out.println(message);
+    }
+
+    public synchronized long getStallCount() {
+        return stallCount;
+    }
+
+    public synchronized double getLongestStallMillis() {
+        return longestStallNanos / 1_000_000.0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FxStallWatchdog{" +
+                "thresholdMs=" + thresholdNanos / 1_000_000 +
+                ", stalls=" + stallCount +
+                ", longestStallMs=" + String.format("%.1f", getLongestStallMillis()) +
+                '}';
+    }
+}
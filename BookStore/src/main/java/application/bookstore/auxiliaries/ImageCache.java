@@ -0,0 +1,183 @@
+package application.bookstore.auxiliaries;
+
+import javafx.scene.image.Image;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Application-wide cache of decoded covers keyed by ISBN and target size, shared by every table and
+//screen so returning to BookView or scrolling back up doesn't decode the same PNGs again.
+//Entries are evicted least-recently-used once their pixel bytes pass the budget, and are held
+//through SoftReferences so the GC can still reclaim them when the heap runs short.
+public class ImageCache {
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    private static ImageCache instance;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReferenceQueue<Image> clearedQueue = new ReferenceQueue<>();
+    private long residentBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long softCleared;
+
+    private ImageCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static synchronized ImageCache getInstance() {
+        if (instance == null) {
+            instance = new ImageCache(DEFAULT_BUDGET_BYTES);
+        }
+        return instance;
+    }
+
+    //Returns the cached image, or decodes the cover in the background at size x size and caches that.
+    //url is the book's bookURL; a pre-scaled variant of it is decoded instead when ThumbnailStore has one.
+    public synchronized Image get(String isbn, int size, String url) {
+        purgeCleared();
+        String key = key(isbn, size);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            Image image = entry.get();
+            if (image != null && url.equals(entry.url) && !image.isError()) {
+                hits++;
+                return image;
+            }
+            remove(key);
+        }
+        misses++;
+        String coverUrl = CoverStore.toUrl(url);
+        String variantUrl = ThumbnailStore.variantUrl(coverUrl, size);
+        Image image = new Image(variantUrl != null ? variantUrl : coverUrl, size, size, true, true, true);
+        //The requested size bounds the decoded pixels, so it is the weight even before loading finishes
+        Entry created = new Entry(key, url, image, (long) size * size * 4, clearedQueue);
+        entries.put(key, created);
+        residentBytes += created.bytes;
+        image.errorProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue) {
+                invalidate(isbn);
+            }
+        });
+        evictOverBudget();
+        return image;
+    }
+
+    //Drops every size of this ISBN, called when its cover is replaced or deleted
+    public synchronized void invalidate(String isbn) {
+        String prefix = isbn + "@";
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> next = iterator.next();
+            if (next.getKey().startsWith(prefix)) {
+                residentBytes -= next.getValue().bytes;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        residentBytes = 0;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            residentBytes -= removed.bytes;
+        }
+    }
+
+    private void evictOverBudget() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (residentBytes > budgetBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            residentBytes -= eldest.bytes;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    //Entries whose image the GC reclaimed under memory pressure no longer count against the budget
+    private void purgeCleared() {
+        Reference<? extends Image> reference;
+        while ((reference = clearedQueue.poll()) != null) {
+            Entry cleared = (Entry) reference;
+            if (entries.get(cleared.key) == cleared) {
+                entries.remove(cleared.key);
+                residentBytes -= cleared.bytes;
+                softCleared++;
+            }
+        }
+    }
+
+    private static String key(String isbn, int size) {
+        return isbn + "@" + size;
+    }
+
+    public synchronized long getResidentBytes() {
+        purgeCleared();
+        return residentBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getSoftCleared() {
+        return softCleared;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ImageCache{" +
+                "entries=" + entries.size() +
+                ", residentKB=" + residentBytes / 1024 +
+                ", budgetKB=" + budgetBytes / 1024 +
+                ", hitRate=" + String.format("%.1f%%", getHitRate() * 100) +
+                ", evictions=" + evictions +
+                ", softCleared=" + softCleared +
+                '}';
+    }
+
+    private static class Entry extends SoftReference<Image> {
+        private final String key;
+        private final String url;
+        private final long bytes;
+
+        Entry(String key, String url, Image image, long bytes, ReferenceQueue<Image> queue) {
+            super(image, queue);
+            this.key = key;
+            this.url = url;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package application.bookstore.auxiliaries;
+
+//ISBNs as they appear in manifests and file names: with or without hyphens and spaces, ISBN-10 or ISBN-13.
+//Both the catalog ingest and the cover importer compare them in this normalized form.
+public class Isbn {
+    private static final String PATTERN = "\\d{9}[\\dX]|\\d{13}";
+
+    //Drops hyphens and spaces and upper-cases an ISBN-10 check digit X
+    public static String normalize(String isbn) {
+        return isbn.replace("-", "").replace(" ", "").toUpperCase();
+    }
+
+    //Whether an already normalized ISBN has the shape of an ISBN-10 or ISBN-13
+    public static boolean isValid(String normalized) {
+        return normalized.matches(PATTERN);
+    }
+}
@@ -0,0 +1,95 @@
+package application.bookstore.auxiliaries;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+//Salted PBKDF2 password hashes, stored in User.password as pbkdf2$<iterations>$<salt>$<hash>.
+//Hashing is deliberately slow (ITERATIONS rounds), so call it off the FX thread.
+//Passwords saved before hashing was introduced are still plain text and are recognised by the missing prefix.
+public class PasswordHasher {
+    public static final int ITERATIONS = 210_000;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    //Stored for accounts that have no password yet; it has the prefix but never verifies, so an admin has to set one
+    public static final String RESET_REQUIRED = PREFIX + "$reset";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom random = new SecureRandom();
+
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + ITERATIONS + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, ITERATIONS));
+    }
+
+    public static boolean verify(String password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = parse(stored);
+        if (parts == null) {
+            return false;
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] expected = decoder.decode(parts[3]);
+        byte[] actual = derive(password, decoder.decode(parts[2]), Integer.parseInt(parts[1]));
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    //Whether stored has the full pbkdf2$<iterations>$<salt>$<hash> shape, not just the prefix
+    public static boolean isWellFormed(String stored) {
+        return parse(stored) != null;
+    }
+
+    //Plain text passwords and hashes made with fewer rounds than today's are replaced on the next login
+    public static boolean needsRehash(String stored) {
+        String[] parts = parse(stored);
+        return parts == null || Integer.parseInt(parts[1]) < ITERATIONS;
+    }
+
+    //The four fields of a well formed hash, or null
+    private static String[] parse(String stored) {
+        if (!isHashed(stored)) {
+            return null;
+        }
+        String[] parts = stored.split("\\$", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            if (Integer.parseInt(parts[1]) <= 0 || decoder.decode(parts[2]).length == 0 || decoder.decode(parts[3]).length == 0) {
+                return null;
+            }
+        } catch (IllegalArgumentException e) {
+            //NumberFormatException from the round count or a bad Base64 field
+            return null;
+        }
+        return parts;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
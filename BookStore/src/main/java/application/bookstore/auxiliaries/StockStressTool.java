@@ -0,0 +1,118 @@
+package application.bookstore.auxiliaries;
+
+import application.bookstore.Exceptions.InsufficientStockException;
+import application.bookstore.controllers.CheckoutController;
+import application.bookstore.models.SaleLine;
+import application.bookstore.models.User;
+import javafx.beans.property.SimpleStringProperty;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Runs many simulated tills that all buy the same title at once through CheckoutController.checkout,
+//including its retry of deadlocks and lock wait timeouts, and checks that the database ends up with
+//exactly startQuantity - sold copies, i.e. no lost decrements and no overselling.
+//Point DatabaseConnector at a local test schema first: the chosen book's quantity is overwritten and
+//every sale is written as a Bill by the given user.
+//Usage: StockStressTool <ISBN> <username> [tills=20] [attemptsPerTill=50] [startQuantity=500]
+public class StockStressTool {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: StockStressTool <ISBN> <username> [tills] [attemptsPerTill] [startQuantity]");
+            return;
+        }
+        String isbn = args[0];
+        User cashier = new User(new SimpleStringProperty("Stress"), new SimpleStringProperty("Test"),
+                new SimpleStringProperty(""), new SimpleStringProperty(args[1]), new SimpleStringProperty(""),
+                new SimpleStringProperty(""), new SimpleStringProperty("Librarian"));
+        int tills = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int attemptsPerTill = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        int startQuantity = args.length > 4 ? Integer.parseInt(args[4]) : 500;
+
+        setQuantity(isbn, startQuantity);
+
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch startGate = new CountDownLatch(1);
+        ExecutorService tillThreads = Executors.newFixedThreadPool(tills);
+
+        for (int till = 0; till < tills; till++) {
+            tillThreads.execute(() -> {
+                SaleLine line = new SaleLine(isbn, "", 0, 0, 1);
+                try {
+                    startGate.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int attempt = 0; attempt < attemptsPerTill; attempt++) {
+                    try {
+                        CheckoutController.checkout(List.of(line), 0, cashier);
+                        sold.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        conflicts.incrementAndGet();
+                    } catch (SQLException e) {
+                        errors.incrementAndGet();
+                        System.err.println("Till error: " + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        startGate.countDown();
+        tillThreads.shutdown();
+        tillThreads.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        int finalQuantity = getQuantity(isbn);
+        int expected = startQuantity - sold.get();
+        int attempts = tills * attemptsPerTill;
+        System.out.println("Tills: " + tills + ", attempts: " + attempts + ", sold: " + sold.get()
+                + ", rejected (sold out): " + conflicts.get() + ", errors: " + errors.get()
+                + ", lock conflicts retried: " + CheckoutController.getRetryCount());
+        System.out.println("Start quantity: " + startQuantity + ", final quantity: " + finalQuantity
+                + ", expected: " + expected);
+        System.out.println(String.format("%.0f", attempts / seconds) + " checkouts/second");
+        System.out.println(ConnectionPool.getInstance());
+
+        boolean passed = finalQuantity == expected && finalQuantity >= 0
+                && sold.get() == Math.min(startQuantity, attempts - errors.get());
+        System.out.println(passed ? "PASS: no lost updates, no overselling" : "FAIL");
+        ConnectionPool.shutdownPool();
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static void setQuantity(String isbn, int quantity) throws SQLException {
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("UPDATE book SET quantity = ? WHERE ISBN = ?")) {
+            preparedStatement.setInt(1, quantity);
+            preparedStatement.setString(2, isbn);
+            if (preparedStatement.executeUpdate() == 0) {
+                throw new SQLException("No book with ISBN " + isbn);
+            }
+        }
+    }
+
+    private static int getQuantity(String isbn) throws SQLException {
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("SELECT quantity FROM book WHERE ISBN = ?")) {
+            preparedStatement.setString(1, isbn);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt("quantity");
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package application.bookstore.auxiliaries;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+//Writes covers as normalized PNGs together with pre-scaled variants in a thumbs folder next to them,
+//once when a cover is stored, so the views never have to decode a multi-megabyte original.
+//CoverStore decides where covers live. Run main() to backfill variants for covers saved before this existed.
+public class ThumbnailStore {
+    public static final int TABLE_SIZE = 50;
+    public static final int DETAIL_SIZE = 150;
+    private static final int[] VARIANT_SIZES = {TABLE_SIZE, DETAIL_SIZE};
+    private static final Set<Path> createdFolders = ConcurrentHashMap.newKeySet();
+
+    public static Path getImageFolder() {
+        return CoverStore.getRoot();
+    }
+
+    //Variants live in a thumbs folder next to their original
+    public static Path getThumbnailFolder(Path original) {
+        return original.toAbsolutePath().getParent().resolve("thumbs");
+    }
+
+    //Writes a cover as a normalized PNG (re-encoded if it was a JPEG or GIF) together with its variants
+    public static void writeCover(Path destination, byte[] imageBytes) throws IOException {
+        ensureFolders(destination);
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        if (original == null) {
+            //Not a format ImageIO can decode, keep the bytes as they are and let JavaFX scale it at render time
+            writeAtomically(destination, out -> out.write(imageBytes));
+            for (int size : VARIANT_SIZES) {
+                Files.deleteIfExists(variantPath(destination, size));
+            }
+            return;
+        }
+        writeAtomically(destination, out -> ImageIO.write(original, "png", out));
+        writeVariants(destination, original);
+    }
+
+    public static void writeVariants(Path original, BufferedImage image) throws IOException {
+        ensureFolders(original);
+        for (int size : VARIANT_SIZES) {
+            BufferedImage variant = scale(image, size);
+            writeAtomically(variantPath(original, size), out -> ImageIO.write(variant, "png", out));
+        }
+    }
+
+    //Creating the folders costs a few system calls, so each folder is only checked the first time it is used
+    private static void ensureFolders(Path original) throws IOException {
+        Path thumbs = getThumbnailFolder(original);
+        if (!createdFolders.contains(thumbs)) {
+            Files.createDirectories(thumbs);
+            createdFolders.add(thumbs);
+        }
+    }
+
+    //Writes next to the target and renames over it, so a reader never sees a half-written image
+    //and a failed write leaves the previous cover in place
+    private static void writeAtomically(Path target, ImageWriter writer) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writer.write(out);
+            }
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void moveAtomically(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private interface ImageWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    public static Path variantPath(Path original, int size) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return getThumbnailFolder(original).resolve(base + "_" + size + ".png");
+    }
+
+    //Returns the URL of the pre-scaled variant for a cover URL, or null when there is none yet
+    public static String variantUrl(String coverUrl, int size) {
+        try {
+            Path original = Paths.get(URI.create(coverUrl));
+            Path variant = variantPath(original, size);
+            return Files.exists(variant) ? variant.toUri().toString() : null;
+        } catch (IllegalArgumentException | java.nio.file.FileSystemNotFoundException e) {
+            return null;
+        }
+    }
+
+    public static void deleteCover(Path original) throws IOException {
+        Files.deleteIfExists(original);
+        for (int size : VARIANT_SIZES) {
+            Files.deleteIfExists(variantPath(original, size));
+        }
+    }
+
+    //Scales to fit inside size x size keeping the aspect ratio, halving in steps first so large
+    //originals don't alias the way a single bilinear pass would
+    static BufferedImage scale(BufferedImage source, int size) {
+        double ratio = Math.min((double) size / source.getWidth(), (double) size / source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * Math.min(ratio, 1)));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * Math.min(ratio, 1)));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    //Bulk backfill: ThumbnailStore [folder] regenerates missing or stale variants for every cover under the folder,
+    //including the blob folders of CoverStore
+    public static void main(String[] args) throws IOException {
+        Path folder = args.length > 0 ? Paths.get(args[0]) : getImageFolder();
+        int written = 0, upToDate = 0, failed = 0;
+        long start = System.nanoTime();
+
+        try (Stream<Path> files = Files.walk(folder)) {
+            Iterable<Path> covers = files
+                    .filter(file -> !file.getParent().getFileName().toString().equals("thumbs"))
+                    .filter(file -> file.getFileName().toString().toLowerCase().matches(".*\\.(png|jpg|jpeg|gif)"))::iterator;
+            for (Path cover : covers) {
+                if (!needsVariants(cover)) {
+                    upToDate++;
+                    continue;
+                }
+                try {
+                    BufferedImage image = ImageIO.read(cover.toFile());
+                    if (image == null) {
+                        System.out.println("Skipping " + cover.getFileName() + ": not a readable image");
+                        failed++;
+                        continue;
+                    }
+                    writeVariants(cover, image);
+                    written++;
+                } catch (IOException e) {
+                    System.out.println("Skipping " + cover.getFileName() + ": " + e.getMessage());
+                    failed++;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.out.println("Thumbnails written for " + written + " covers, " + upToDate + " already up to date, "
+                + failed + " failed, in " + String.format("%.2f", seconds) + "s");
+    }
+
+    private static boolean needsVariants(Path cover) throws IOException {
+        for (int size : VARIANT_SIZES) {
+            Path variant = variantPath(cover, size);
+            if (!Files.exists(variant)
+                    || Files.getLastModifiedTime(variant).compareTo(Files.getLastModifiedTime(cover)) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,24 +1,29 @@
 package application.bookstore.charts;
 
+import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
 import application.bookstore.models.User;
 import application.bookstore.views.AdminView;
 import application.bookstore.views.BookView;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.chart.PieChart;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Locale;
 
@@ -34,18 +39,21 @@ public class Chart1 implements DatabaseConnector {
     public Scene showView(Stage primaryStage) {
         primaryStage.setTitle("Statistics");
         BorderPane root=new BorderPane();
-        ObservableList<PieChart.Data> pieChartData = getBookProfitData();
-
-        PieChart pieChart = new PieChart(pieChartData);
+        PieChart pieChart = new PieChart();
         pieChart.setTitle("Book Profit Distribution");
 
-        pieChart.getData().forEach(data -> {
-            String bookName = data.getName();
-            double profit = data.getPieValue();
-            data.setName(bookName + " - $" + String.format("%.2f", profit));
-        });
+        //The query runs on the data-access pool, the chart fills in when it returns
+        Task<ObservableList<PieChart.Data>> load = DataAccess.submit(this::getBookProfitData, pieChartData -> {
+            pieChartData.forEach(data -> {
+                String bookName = data.getName();
+                double profit = data.getPieValue();
+                data.setName(bookName + " - $" + String.format("%.2f", profit));
+            });
+            pieChart.setData(pieChartData);
+        }, error -> Alerts.showAlert(Alert.AlertType.ERROR, "Database Error",
+                "The chart data could not be loaded.\n" + error.getMessage()));
 
-        root.setCenter(pieChart);
+        root.setCenter(new StackPane(pieChart, DataAccess.busyIndicator(load)));
 
         //Back,Next Leave Buttons
         Button emptyBtn=new Button();
@@ -103,21 +111,22 @@ public class Chart1 implements DatabaseConnector {
                 }
             }});
 
-        return new Scene(root, 1000, 700);
+        Scene scene = new Scene(root, 1000, 700);
+        DataAccess.cancelOnLeave(load, scene);
+        return scene;
     }
 
-    private ObservableList<PieChart.Data> getBookProfitData() {
-        ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
+    private ObservableList<PieChart.Data> getBookProfitData() throws SQLException {
+        //Only the largest slices are kept, the rest are folded into "Other" as the rows stream in
+        TopSlices topSlices = new TopSlices();
 
-        try {
-            // Establish database connection
-            Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-            Statement statement = connection.createStatement();
+        try (Connection connection = ConnectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
 
-            // Retrieve data from the SoldBookType and Book tables using a JOIN
-            String sql = "SELECT b.name AS bookName, sbt.amount * sbt.soldQuantity AS totalProfit " +
-                    "FROM SoldBookType sbt " +
-                    "JOIN Book b ON sbt.ISBN = b.ISBN";
+            // Profit per book is kept summed in sales_by_book, one row per book however many sales there were
+            String sql = "SELECT b.name AS bookName, sbb.profit AS totalProfit " +
+                    "FROM sales_by_book sbb " +
+                    "JOIN Book b ON sbb.ISBN = b.ISBN";
 
             ResultSet resultSet = statement.executeQuery(sql);
 
@@ -126,18 +135,10 @@ public class Chart1 implements DatabaseConnector {
                 String bookName = resultSet.getString("bookName");
                 double totalProfit = resultSet.getDouble("totalProfit");
 
-                pieChartData.add(new PieChart.Data(bookName, totalProfit));
+                topSlices.add(bookName, totalProfit);
             }
-
-            // Close resources
-            resultSet.close();
-            statement.close();
-            connection.close();
-
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
-        return pieChartData;
+        return topSlices.toPieChartData();
     }
 }
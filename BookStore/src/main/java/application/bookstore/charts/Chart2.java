@@ -1,24 +1,29 @@
 package application.bookstore.charts;
 
+import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
 import application.bookstore.models.Book;
 import application.bookstore.models.User;
 import application.bookstore.views.AdminView;
 import application.bookstore.views.BookView;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.chart.*;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collection;
 
@@ -33,18 +38,21 @@ public class Chart2 implements DatabaseConnector {
     public Scene showView(Stage primaryStage) {
         primaryStage.setTitle("Units Sold Statistics");
         BorderPane root = new BorderPane();
-        ObservableList<PieChart.Data> unitsSoldChartData = getUnitsSoldData();
-
-        PieChart unitsSoldChart = new PieChart(unitsSoldChartData);
+        PieChart unitsSoldChart = new PieChart();
         unitsSoldChart.setTitle("Units Sold Distribution");
 
-        unitsSoldChart.getData().forEach(data -> {
-            String bookName = data.getName();
-            int unitsSold = (int) data.getPieValue(); // Assuming units sold is an integer
-            data.setName(bookName + " - " + unitsSold + " units");
-        });
+        //The query runs on the data-access pool, the chart fills in when it returns
+        Task<ObservableList<PieChart.Data>> load = DataAccess.submit(this::getUnitsSoldData, unitsSoldChartData -> {
+            unitsSoldChartData.forEach(data -> {
+                String bookName = data.getName();
+                int unitsSold = (int) data.getPieValue(); // Assuming units sold is an integer
+                data.setName(bookName + " - " + unitsSold + " units");
+            });
+            unitsSoldChart.setData(unitsSoldChartData);
+        }, error -> Alerts.showAlert(Alert.AlertType.ERROR, "Database Error",
+                "The chart data could not be loaded.\n" + error.getMessage()));
 
-        root.setCenter(unitsSoldChart);
+        root.setCenter(new StackPane(unitsSoldChart, DataAccess.busyIndicator(load)));
 
         // Back, Next, Leave Buttons
         Button goBackButton = new Button("Back");
@@ -117,21 +125,22 @@ public class Chart2 implements DatabaseConnector {
                 }
             }});
 
-        return new Scene(root, 1000, 700);
+        Scene scene = new Scene(root, 1000, 700);
+        DataAccess.cancelOnLeave(load, scene);
+        return scene;
     }
 
-    private ObservableList<PieChart.Data> getUnitsSoldData() {
-        ObservableList<PieChart.Data> unitsSoldChartData = FXCollections.observableArrayList();
+    private ObservableList<PieChart.Data> getUnitsSoldData() throws SQLException {
+        //Only the largest slices are kept, the rest are folded into "Other" as the rows stream in
+        TopSlices topSlices = new TopSlices();
 
-        try {
-            // Establish database connection
-            Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-            Statement statement = connection.createStatement();
+        try (Connection connection = ConnectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
 
-            // Retrieve data for units sold from the SoldBookType table
-            String sql = "SELECT b.name AS bookName, sbt.soldQuantity AS unitsSold " +
-                    "FROM SoldBookType sbt " +
-                    "JOIN Book b ON sbt.ISBN = b.ISBN";
+            // Units sold per book are kept summed in sales_by_book
+            String sql = "SELECT b.name AS bookName, sbb.units AS unitsSold " +
+                    "FROM sales_by_book sbb " +
+                    "JOIN Book b ON sbb.ISBN = b.ISBN";
 
             ResultSet resultSet = statement.executeQuery(sql);
 
@@ -140,19 +149,11 @@ public class Chart2 implements DatabaseConnector {
                 String bookName = resultSet.getString("bookName");
                 int unitsSold = resultSet.getInt("unitsSold");
 
-                unitsSoldChartData.add(new PieChart.Data(bookName, unitsSold));
+                topSlices.add(bookName, unitsSold);
             }
-
-            // Close resources
-            resultSet.close();
-            statement.close();
-            connection.close();
-
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
-        return unitsSoldChartData;
+        return topSlices.toPieChartData();
     }
 
 }
@@ -2,23 +2,28 @@ package application.bookstore.charts;
 
 import application.bookstore.views.BookView;
 import javafx.scene.Scene;
+import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
 import application.bookstore.models.User;
 import application.bookstore.views.AdminView;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.chart.*;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collection;
 
@@ -33,18 +38,21 @@ public class Chart3 implements DatabaseConnector{
     public Scene showView(Stage primaryStage)
     {
         BorderPane root = new BorderPane();
-        ObservableList<PieChart.Data> supplierBooksData = getSupplierBooksData();
-
-        PieChart supplierBooksChart = new PieChart(supplierBooksData);
+        PieChart supplierBooksChart = new PieChart();
         supplierBooksChart.setTitle("Number of Books Supplied by Each Supplier");
 
-        supplierBooksChart.getData().forEach(data -> {
-            String supplierName = data.getName();
-            int booksSupplied = (int) data.getPieValue();
-            data.setName(supplierName + " - " + booksSupplied + " books");
-        });
+        //The query runs on the data-access pool, the chart fills in when it returns
+        Task<ObservableList<PieChart.Data>> load = DataAccess.submit(this::getSupplierBooksData, supplierBooksData -> {
+            supplierBooksData.forEach(data -> {
+                String supplierName = data.getName();
+                int booksSupplied = (int) data.getPieValue();
+                data.setName(supplierName + " - " + booksSupplied + " books");
+            });
+            supplierBooksChart.setData(supplierBooksData);
+        }, error -> Alerts.showAlert(Alert.AlertType.ERROR, "Database Error",
+                "The chart data could not be loaded.\n" + error.getMessage()));
 
-        root.setCenter(supplierBooksChart);
+        root.setCenter(new StackPane(supplierBooksChart, DataAccess.busyIndicator(load)));
 
         // Back, Next, Leave Buttons
         // (Same button styling and layout as in the previous methods)
@@ -65,9 +73,20 @@ public class Chart3 implements DatabaseConnector{
                         "-fx-font-size: 15px; "
         );
 
-        Button nextChartButton = new Button();
+        Button nextChartButton = new Button("Next");
+        nextChartButton.setOnAction(e -> {
+            Chart4 chart4=new Chart4(currentUser);
+            primaryStage.setScene(chart4.showView(primaryStage));
+        });
+
         nextChartButton.setPrefWidth(100);
-        nextChartButton.setOpacity(0);
+        nextChartButton.setPadding(new Insets(20,20,20,20));
+
+        nextChartButton.setStyle(
+                "-fx-background-color: orange; " +
+                        "-fx-text-fill: white; " +
+                        "-fx-font-size: 15px; "
+        );
 
         HBox buttonsBox = new HBox(10, goBackButton, nextChartButton);
         buttonsBox.setAlignment(Pos.CENTER);
@@ -107,22 +126,23 @@ public class Chart3 implements DatabaseConnector{
         root.setTop(leaveButton);
         BorderPane.setAlignment(leaveButton, Pos.TOP_LEFT);
 
-        return new Scene(root, 1000, 700);
+        Scene scene = new Scene(root, 1000, 700);
+        DataAccess.cancelOnLeave(load, scene);
+        return scene;
     }
 
-    private ObservableList<PieChart.Data> getSupplierBooksData() {
-        ObservableList<PieChart.Data> supplierBooksData = FXCollections.observableArrayList();
+    private ObservableList<PieChart.Data> getSupplierBooksData() throws SQLException {
+        //Only the largest slices are kept, the rest are folded into "Other" as the rows stream in
+        TopSlices topSlices = new TopSlices();
 
-        try {
-            // Establish database connection
-            Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-            Statement statement = connection.createStatement();
+        try (Connection connection = ConnectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
 
-            // Retrieve data for the number of books supplied by each supplier from the Supplies table
-            String sql = "SELECT s.name AS supplierName, COUNT(su.ISBN) AS booksSupplied " +
+            // Books per supplier are counted into supplier_book_count by triggers on the supplies table
+            String sql = "SELECT s.name AS supplierName, sbc.books AS booksSupplied " +
                     "FROM Supplier s " +
-                    "JOIN supplies su ON s.SupplierId = su.SupplierId " +
-                    "GROUP BY s.SupplierId";
+                    "JOIN supplier_book_count sbc ON s.SupplierId = sbc.SupplierId " +
+                    "WHERE sbc.books > 0";
 
             ResultSet resultSet = statement.executeQuery(sql);
 
@@ -131,19 +151,11 @@ public class Chart3 implements DatabaseConnector{
                 String supplierName = resultSet.getString("supplierName");
                 int booksSupplied = resultSet.getInt("booksSupplied");
 
-                supplierBooksData.add(new PieChart.Data(supplierName, booksSupplied));
+                topSlices.add(supplierName, booksSupplied);
             }
-
-            // Close resources
-            resultSet.close();
-            statement.close();
-            connection.close();
-
-        } catch (Exception e) {
-            e.printStackTrace();
         }
 
-        return supplierBooksData;
+        return topSlices.toPieChartData();
     }
 
 }
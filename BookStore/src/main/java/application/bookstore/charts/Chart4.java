@@ -0,0 +1,229 @@
+package application.bookstore.charts;
+
+import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.DataAccess;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.controllers.SalesStatistics;
+import application.bookstore.controllers.SalesStatistics.Bucket;
+import application.bookstore.controllers.SalesStatistics.Dimension;
+import application.bookstore.controllers.SalesStatistics.SalesFigure;
+import application.bookstore.models.User;
+import application.bookstore.views.AdminView;
+import application.bookstore.views.BookView;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.chart.BarChart;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+//Sales over a chosen date range: a time series per day, week or month and the top books,
+//categories, suppliers or cashiers for the same range
+public class Chart4 implements DatabaseConnector {
+    private static final int TOP_ENTRIES = 10;
+
+    private User currentUser;
+    private DatePicker fromPicker;
+    private DatePicker toPicker;
+    private ComboBox<String> bucketBox;
+    private ComboBox<String> measureBox;
+    private ComboBox<String> dimensionBox;
+    private LineChart<String, Number> trendChart;
+    private BarChart<String, Number> topChart;
+    private HBox filters;
+    private Task<?> running;
+
+    public Chart4(User u)
+    {
+        this.currentUser=u;
+    }
+
+    public Scene showView(Stage primaryStage) {
+        primaryStage.setTitle("Sales Over Time");
+        BorderPane root = new BorderPane();
+
+        LocalDate today = LocalDate.now();
+        fromPicker = new DatePicker(SalesStatistics.startOfBucket(Bucket.WEEK, today));
+        toPicker = new DatePicker(today);
+        bucketBox = new ComboBox<>();
+        bucketBox.getItems().addAll("Day", "Week", "Month");
+        bucketBox.getSelectionModel().selectFirst();
+        measureBox = new ComboBox<>();
+        measureBox.getItems().addAll("Profit", "Units", "Revenue");
+        measureBox.getSelectionModel().selectFirst();
+        dimensionBox = new ComboBox<>();
+        dimensionBox.getItems().addAll("Book", "Category", "Supplier", "Cashier");
+        dimensionBox.getSelectionModel().selectFirst();
+
+        Button thisWeek = new Button("This Week");
+        thisWeek.setOnAction(e -> showRange(SalesStatistics.startOfBucket(Bucket.WEEK, LocalDate.now()), "Day"));
+        Button thisMonth = new Button("This Month");
+        thisMonth.setOnAction(e -> showRange(LocalDate.now().withDayOfMonth(1), "Day"));
+        Button thisYear = new Button("This Year");
+        thisYear.setOnAction(e -> showRange(LocalDate.now().withDayOfYear(1), "Month"));
+        Button apply = new Button("Show");
+        apply.setOnAction(e -> reload());
+
+        filters = new HBox(10, new Label("From"), fromPicker, new Label("To"), toPicker, bucketBox,
+                measureBox, dimensionBox, apply, thisWeek, thisMonth, thisYear);
+        filters.setAlignment(Pos.CENTER_LEFT);
+
+        trendChart = new LineChart<>(new CategoryAxis(), new NumberAxis());
+        trendChart.setTitle("Sales Over Time");
+        trendChart.setLegendVisible(false);
+        topChart = new BarChart<>(new CategoryAxis(), new NumberAxis());
+        topChart.setLegendVisible(false);
+        root.setCenter(new VBox(10, trendChart, topChart));
+
+        // Back, Leave Buttons
+        Button goBackButton = new Button("Back");
+        goBackButton.setOnAction(e -> {
+            Chart3 chart3=new Chart3(currentUser);
+            primaryStage.setScene(chart3.showView(primaryStage));
+        });
+
+        goBackButton.setPrefWidth(100);
+        goBackButton.setPadding(new Insets(20,20,20,20));
+
+        goBackButton.setStyle(
+                "-fx-background-color: orange; " +
+                        "-fx-text-fill: white; " +
+                        "-fx-font-size: 15px; "
+        );
+
+        HBox buttonsBox = new HBox(10, goBackButton);
+        buttonsBox.setAlignment(Pos.CENTER_LEFT);
+        root.setBottom(buttonsBox);
+
+        Button leaveButton = new Button("Leave");
+        leaveButton.setPrefWidth(100);
+        leaveButton.setPadding(new Insets(20, 20, 20, 20));
+        leaveButton.setStyle(
+                "-fx-background-color: red; " +
+                        "-fx-text-fill: white; " +
+                        "-fx-font-size: 15px; "
+        );
+        VBox top = new VBox(10, leaveButton, filters);
+        top.setPadding(new Insets(0, 0, 10, 0));
+        root.setTop(top);
+
+        leaveButton.setOnAction(e->
+        {
+            if(currentUser.getRoleString().equalsIgnoreCase("admin"))
+            {
+                AdminView adminView=new AdminView(currentUser);
+                try {
+                    primaryStage.setScene(adminView.showView(primaryStage));
+                } catch (Exception ex) {
+                    System.out.println("Problem when accessing adminView");
+                }
+            }else {
+                BookView bookView = new BookView(currentUser.getRole(), currentUser);
+                try {
+                    primaryStage.setScene(bookView.showView(primaryStage));
+                } catch (Exception ex) {
+                    System.out.println("Problem when accessing BookStore");
+                }
+            }});
+
+        Scene scene = new Scene(root, 1000, 700);
+        scene.windowProperty().addListener((observable, oldWindow, newWindow) -> {
+            if (newWindow == null && running != null) {
+                running.cancel(true);
+            }
+        });
+        reload();
+        return scene;
+    }
+
+    private void showRange(LocalDate from, String bucket) {
+        fromPicker.setValue(from);
+        toPicker.setValue(LocalDate.now());
+        bucketBox.setValue(bucket);
+        reload();
+    }
+
+    private void reload() {
+        LocalDate from = fromPicker.getValue();
+        LocalDate to = toPicker.getValue();
+        if (from == null || to == null || to.isBefore(from)) {
+            return;
+        }
+        //The range is inclusive on screen and half-open in the queries
+        LocalDate toExclusive = to.plusDays(1);
+        Bucket bucket = Bucket.valueOf(bucketBox.getValue().toUpperCase());
+        Dimension dimension = Dimension.valueOf(dimensionBox.getValue().toUpperCase());
+        String measure = measureBox.getValue();
+        ToDoubleFunction<SalesFigure> value = switch (measure) {
+            case "Units" -> SalesFigure::getUnits;
+            case "Revenue" -> SalesFigure::getRevenue;
+            default -> SalesFigure::getProfit;
+        };
+
+        if (running != null) {
+            running.cancel(true);
+        }
+        Task<SalesView> load = DataAccess.submit(() -> new SalesView(
+                SalesStatistics.series(bucket, from, toExclusive),
+                SalesStatistics.totals(dimension, from, toExclusive)
+        ), result -> {
+            Map<LocalDate, SalesFigure> series = result.series;
+            List<SalesFigure> totals = result.totals;
+
+            XYChart.Series<String, Number> trend = new XYChart.Series<>();
+            for (Map.Entry<LocalDate, SalesFigure> entry : series.entrySet()) {
+                trend.getData().add(new XYChart.Data<>(entry.getKey().toString(), value.applyAsDouble(entry.getValue())));
+            }
+            trendChart.getData().setAll(List.of(trend));
+            trendChart.setTitle(measure + " per " + bucketBox.getValue().toLowerCase());
+
+            XYChart.Series<String, Number> top = new XYChart.Series<>();
+            totals.stream()
+                    .sorted((a, b) -> Double.compare(value.applyAsDouble(b), value.applyAsDouble(a)))
+                    .limit(TOP_ENTRIES)
+                    .forEach(figure -> top.getData().add(new XYChart.Data<>(figure.getLabel(), value.applyAsDouble(figure))));
+            topChart.getData().setAll(List.of(top));
+            topChart.setTitle("Top " + TOP_ENTRIES + " by " + measure.toLowerCase() + " per " + dimensionBox.getValue().toLowerCase());
+        }, error -> Alerts.showAlert(Alert.AlertType.ERROR, "Database Error",
+                "The sales figures could not be loaded.\n" + error.getMessage()));
+        running = load;
+
+        ProgressIndicator busy = DataAccess.busyIndicator(load);
+        busy.setMaxSize(25, 25);
+        filters.getChildren().add(busy);
+        load.runningProperty().addListener((observable, wasRunning, isRunning) -> {
+            if (!isRunning) {
+                filters.getChildren().remove(busy);
+            }
+        });
+    }
+
+    //What one reload reads: the time series and the totals per dimension for the same range
+    private static class SalesView {
+        private final Map<LocalDate, SalesFigure> series;
+        private final List<SalesFigure> totals;
+
+        SalesView(Map<LocalDate, SalesFigure> series, List<SalesFigure> totals) {
+            this.series = series;
+            this.totals = totals;
+        }
+    }
+}
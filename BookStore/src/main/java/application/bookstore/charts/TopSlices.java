@@ -0,0 +1,69 @@
+package application.bookstore.charts;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.chart.PieChart;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//Keeps the largest N values seen in one streaming pass over a result set and folds everything else
+//into a single "Other" slice, so a pie chart has at most N + 1 slices however many rows there are.
+//A min-heap of size N holds the current top entries; a new value only enters by pushing out the smallest.
+public class TopSlices {
+    public static final int DEFAULT_LIMIT = 10;
+
+    private final int limit;
+    private final PriorityQueue<Slice> top;
+    private double otherTotal;
+    private int otherCount;
+
+    public TopSlices() {
+        this(DEFAULT_LIMIT);
+    }
+
+    public TopSlices(int limit) {
+        this.limit = limit;
+        this.top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(slice -> slice.value));
+    }
+
+    public void add(String label, double value) {
+        if (top.size() < limit) {
+            top.add(new Slice(label, value));
+        } else if (value > top.peek().value) {
+            Slice smallest = top.poll();
+            otherTotal += smallest.value;
+            otherCount++;
+            top.add(new Slice(label, value));
+        } else {
+            otherTotal += value;
+            otherCount++;
+        }
+    }
+
+    //Largest first, then "Other (k)" when anything was folded
+    public ObservableList<PieChart.Data> toPieChartData() {
+        List<Slice> slices = new ArrayList<>(top);
+        slices.sort(Comparator.comparingDouble((Slice slice) -> slice.value).reversed());
+        ObservableList<PieChart.Data> data = FXCollections.observableArrayList();
+        for (Slice slice : slices) {
+            data.add(new PieChart.Data(slice.label, slice.value));
+        }
+        if (otherCount > 0) {
+            data.add(new PieChart.Data("Other (" + otherCount + ")", otherTotal));
+        }
+        return data;
+    }
+
+    private static class Slice {
+        private final String label;
+        private final double value;
+
+        Slice(String label, double value) {
+            this.label = label;
+            this.value = value;
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package application.bookstore.controllers;
 
 import application.bookstore.Exceptions.EmailAlreadyExistsException;
-import application.bookstore.Exceptions.PasswordAlreadyExistsException;
 import application.bookstore.Exceptions.UsernameAlreadyExistsException;
+import application.bookstore.auxiliaries.ConnectionPool;
 import application.bookstore.auxiliaries.DatabaseConnector;
-import application.bookstore.views.AddNewUserDialog;
 
 import java.sql.*;
-import java.util.ArrayList;
 
+//Creating a user is one validated operation: the dialog asks once which of username and email are taken,
+//and the insert itself is the final check. The unique indexes on username and email (Database/user_unique.sql)
+//reject a duplicate that slipped in between, and the violation is reported as the matching exception.
 public class AddNewUserController implements DatabaseConnector {
+    //Both lookups are satisfied by the unique indexes, so this reads at most two rows
+    private static final String FIND_CONFLICTS_SQL =
+            "SELECT COALESCE(SUM(username = ?), 0) AS usernames, COALESCE(SUM(email = ?), 0) AS emails " +
+                    "FROM user WHERE username = ? OR email = ?";
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO user (firstName, lastName, email, userName, password, gender, Role) VALUES (?,?,?,?,?,?,?)";
+    private static final int DUPLICATE_KEY = 1062;
 
 
     public AddNewUserController()
@@ -17,39 +25,58 @@ public class AddNewUserController implements DatabaseConnector {
 
     }
 
-    public static void allValuesUnique(String username,String email,String password) throws EmailAlreadyExistsException, UsernameAlreadyExistsException, PasswordAlreadyExistsException
+    //Passwords are salted hashes now and two users may well share one, so only username and email must be unique
+    public static void allValuesUnique(String username,String email) throws EmailAlreadyExistsException, UsernameAlreadyExistsException
     {
-        if(doesValueExist("username",username))
-            throw new UsernameAlreadyExistsException();
-        else if(doesValueExist("email",email))
-            throw new EmailAlreadyExistsException();
-        else if(doesValueExist("password",password))
-            throw new PasswordAlreadyExistsException();
-
-    }
-
-    private  static boolean doesValueExist(String columnName,String value) {
-        String query = "SELECT COUNT(*) FROM user WHERE "+columnName+"= ?";
-        boolean valueExists = false;
-
-        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
-
-            preparedStatement.setString(1, value);
-
-            ResultSet resultSet = preparedStatement.executeQuery();
-                if (resultSet.next()) {
-                    int count = resultSet.getInt(1);//extracting the count value
-                    valueExists = count > 0;
-                }
-
+        try (Connection connection = ConnectionPool.getConnection()) {
+            checkConflicts(connection, username, email);
         } catch (SQLException e) {
             System.out.println("Problem with DB");
-            e.printStackTrace();  // Handle the exception appropriately
+            e.printStackTrace();
         }
+    }
 
-        return valueExists;
+    public static void checkConflicts(Connection connection, String username, String email) throws SQLException, EmailAlreadyExistsException, UsernameAlreadyExistsException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(FIND_CONFLICTS_SQL)) {
+            preparedStatement.setString(1, username);
+            preparedStatement.setString(2, email);
+            preparedStatement.setString(3, username);
+            preparedStatement.setString(4, email);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                resultSet.next();
+                if (resultSet.getInt("usernames") > 0)
+                    throw new UsernameAlreadyExistsException();
+                else if (resultSet.getInt("emails") > 0)
+                    throw new EmailAlreadyExistsException();
+            }
+        }
     }
 
+    //Inserts firstName, lastName, email, userName, password (already hashed), gender, Role on its own connection
+    public static void createUser(String[] values) throws SQLException, EmailAlreadyExistsException, UsernameAlreadyExistsException {
+        try (Connection connection = ConnectionPool.getConnection()) {
+            insertUser(connection, values);
+        }
+    }
 
+    //Lets a caller add many users over one connection. A duplicate username or email comes back as the
+    //matching exception instead of a generic SQLException, and the connection stays usable for the next row.
+    public static void insertUser(Connection connection, String[] values) throws SQLException, EmailAlreadyExistsException, UsernameAlreadyExistsException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_USER_SQL)) {
+            for (int i = 0; i < values.length; i++) {
+                preparedStatement.setString(i + 1, values[i]);
+            }
+            preparedStatement.executeUpdate();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            if (e.getErrorCode() != DUPLICATE_KEY) {
+                throw e;
+            }
+            //"Duplicate entry '...' for key 'user.PRIMARY'" or "... for key 'user.email'"
+            String key = e.getMessage().substring(Math.max(0, e.getMessage().lastIndexOf(" key ")));
+            if (key.contains("PRIMARY") || key.toLowerCase().contains("username")) {
+                throw new UsernameAlreadyExistsException();
+            }
+            throw new EmailAlreadyExistsException();
+        }
+    }
 }
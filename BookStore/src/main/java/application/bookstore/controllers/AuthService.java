@@ -0,0 +1,227 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.auxiliaries.PasswordHasher;
+import application.bookstore.models.User;
+import javafx.beans.property.SimpleStringProperty;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Checks logins against the salted password hashes in User.password (PasswordHasher).
+//The user row is looked up by username only and the password is verified in Java, which is slow on
+//purpose, so authenticate() must run on the data-access pool rather than the FX thread.
+//User rows are cached for CACHE_TTL_MS so repeat logins on a till skip the database; the password is
+//still verified every time. UsersTableController and ProfileViewEditController invalidate a user they change.
+//Plain text passwords from before hashing are accepted once and replaced with a hash.
+public class AuthService implements DatabaseConnector {
+    public static final long CACHE_TTL_MS = 5 * 60_000;
+    private static final String FIND_USER_SQL =
+            "SELECT firstName, lastName, email, username, password, gender, Role FROM user WHERE username = ?";
+    private static final String REHASH_SQL = "UPDATE user SET password = ? WHERE username = ? AND password = ?";
+
+    private static AuthService instance;
+
+    private final Map<String, CachedUser> cache = new ConcurrentHashMap<>();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong rehashed = new AtomicLong();
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong totalVerifyNanos = new AtomicLong();
+
+    private AuthService() {
+    }
+
+    public static synchronized AuthService getInstance() {
+        if (instance == null) {
+            instance = new AuthService();
+        }
+        return instance;
+    }
+
+    //Returns the user when the password matches, otherwise null
+    public User authenticate(String username, String password) throws SQLException {
+        attempts.incrementAndGet();
+        CachedUser cached = cache.get(username);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < CACHE_TTL_MS) {
+            cacheHits.incrementAndGet();
+        } else {
+            cached = load(username);
+            if (cached == null) {
+                cache.remove(username);
+                failures.incrementAndGet();
+                return null;
+            }
+            cache.put(username, cached);
+        }
+
+        long start = System.nanoTime();
+        boolean verified = PasswordHasher.verify(password, cached.password);
+        totalVerifyNanos.addAndGet(System.nanoTime() - start);
+        verifications.incrementAndGet();
+        if (!verified) {
+            failures.incrementAndGet();
+            return null;
+        }
+        if (PasswordHasher.needsRehash(cached.password)) {
+            cached = rehash(cached, password);
+        }
+        return cached.toUser();
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            cache.remove(username);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private static CachedUser load(String username) throws SQLException {
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(FIND_USER_SQL)) {
+            preparedStatement.setString(1, username);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                //The lookup is case-insensitive in MySQL, the login isn't
+                if (resultSet.next() && username.equals(resultSet.getString("username"))) {
+                    return new CachedUser(resultSet.getString("firstName"), resultSet.getString("lastName"),
+                            resultSet.getString("email"), resultSet.getString("username"),
+                            resultSet.getString("password"), resultSet.getString("gender"), resultSet.getString("Role"));
+                }
+            }
+        }
+        return null;
+    }
+
+    //Replaces a plain text or outdated password with a new hash, unless someone changed it in the meantime
+    private CachedUser rehash(CachedUser cached, String password) throws SQLException {
+        String hash = PasswordHasher.hash(password);
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(REHASH_SQL)) {
+            preparedStatement.setString(1, hash);
+            preparedStatement.setString(2, cached.username);
+            preparedStatement.setString(3, cached.password);
+            if (preparedStatement.executeUpdate() == 0) {
+                invalidate(cached.username);
+                return cached;
+            }
+        }
+        rehashed.incrementAndGet();
+        CachedUser updated = cached.withPassword(hash);
+        cache.put(cached.username, updated);
+        return updated;
+    }
+
+    //Hashes every password still stored as plain text, for installs that don't want to wait for each user to log in
+    public static int hashPlainTextPasswords() throws SQLException {
+        List<String[]> plain = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("SELECT username, password FROM user");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                String password = resultSet.getString("password");
+                if (!PasswordHasher.isHashed(password)) {
+                    plain.add(new String[]{resultSet.getString("username"), password});
+                }
+            }
+        }
+        int updated = 0;
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(REHASH_SQL)) {
+            for (String[] user : plain) {
+                preparedStatement.setString(1, PasswordHasher.hash(user[1]));
+                preparedStatement.setString(2, user[0]);
+                preparedStatement.setString(3, user[1]);
+                updated += preparedStatement.executeUpdate();
+            }
+        }
+        getInstance().invalidateAll();
+        return updated;
+    }
+
+    public long getAttemptCount() {
+        return attempts.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    public double getAverageVerifyMillis() {
+        long count = verifications.get();
+        return count == 0 ? 0 : totalVerifyNanos.get() / 1_000_000.0 / count;
+    }
+
+    @Override
+    public String toString() {
+        return "AuthService{" +
+                "attempts=" + attempts.get() +
+                ", failures=" + failures.get() +
+                ", cacheHits=" + cacheHits.get() +
+                ", cached=" + cache.size() +
+                ", rehashed=" + rehashed.get() +
+                ", avgVerifyMs=" + String.format("%.2f", getAverageVerifyMillis()) +
+                '}';
+    }
+
+    private static class CachedUser {
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final String username;
+        private final String password;
+        private final String gender;
+        private final String role;
+        private final long loadedAt = System.currentTimeMillis();
+
+        CachedUser(String firstName, String lastName, String email, String username, String password, String gender, String role) {
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.email = email;
+            this.username = username;
+            this.password = password;
+            this.gender = gender;
+            this.role = role;
+        }
+
+        CachedUser withPassword(String password) {
+            return new CachedUser(firstName, lastName, email, username, password, gender, role);
+        }
+
+        //A new User each time, the screens edit the one they are given
+        User toUser() {
+            return new User(
+                    new SimpleStringProperty(firstName),
+                    new SimpleStringProperty(lastName),
+                    new SimpleStringProperty(email),
+                    new SimpleStringProperty(username),
+                    new SimpleStringProperty(password),
+                    new SimpleStringProperty(gender),
+                    new SimpleStringProperty(role)
+            );
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        try {
+            System.out.println("Hashed " + hashPlainTextPasswords() + " plain text passwords");
+        } finally {
+            ConnectionPool.shutdownPool();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package application.bookstore.controllers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+//Index over the bill journal written by BillWriter. bills/journal/index.tsv holds one line per bill
+//(orderId, date, cashier, total, journal file, byte offset, length) and is loaded into maps by order number,
+//by date and by cashier, so a lookup goes straight to the record's bytes in the journal instead of
+//reading through receipts. The index only ever trails the journal, so on load any records written
+//after the last indexed one are scanned and added. An index with unreadable lines is set aside as
+//index.tsv.bad and rebuilt from the journal.
+public class BillArchive {
+    private static final String INDEX_FILE = "index.tsv";
+
+    private static BillArchive instance;
+
+    private final Path journalFolder;
+    private final Path indexPath;
+    private final TreeMap<Integer, Entry> byOrderId = new TreeMap<>();
+    private final TreeMap<LocalDateTime, List<Entry>> byDate = new TreeMap<>();
+    private final Map<String, List<Entry>> byUser = new HashMap<>();
+    private final Map<String, Long> indexedEnd = new HashMap<>();
+
+    private BillArchive(Path journalFolder) {
+        this.journalFolder = journalFolder;
+        this.indexPath = journalFolder.resolve(INDEX_FILE);
+        try {
+            if (!loadIndex()) {
+                System.err.println("Bill index " + indexPath + " has unreadable lines, rebuilding it from the journal");
+                discardIndex();
+            }
+            catchUp();
+        } catch (IOException e) {
+            //Lookups only miss bills until the next load, receipts are still written to the journal
+            System.err.println("Error loading the bill index: " + e.getMessage());
+        }
+    }
+
+    public static synchronized BillArchive getInstance() {
+        if (instance == null) {
+            instance = new BillArchive(BillWriter.getJournalFolder());
+        }
+        return instance;
+    }
+
+    //Called by BillWriter once a batch is durable in the journal
+    public synchronized void add(List<Entry> entries) {
+        List<Entry> added = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!byOrderId.containsKey(entry.orderId)) {
+                put(entry);
+                added.add(entry);
+            }
+        }
+        try {
+            appendToIndex(added);
+        } catch (IOException e) {
+            //The journal is the source of truth, the next load scans these records again
+            System.err.println("Error updating the bill index: " + e.getMessage());
+        }
+    }
+
+    public synchronized Entry find(int orderId) {
+        return byOrderId.get(orderId);
+    }
+
+    //Bills matching every given criterion (null for any), newest first. Starts from the most selective index.
+    public synchronized List<Entry> search(Integer orderId, String username, LocalDate from, LocalDate to, int limit) {
+        Collection<Entry> candidates;
+        if (orderId != null) {
+            Entry entry = byOrderId.get(orderId);
+            candidates = entry == null ? List.of() : List.of(entry);
+        } else if (username != null && !username.isBlank()) {
+            candidates = byUser.getOrDefault(username.trim().toLowerCase(), List.of());
+        } else if (from != null || to != null) {
+            LocalDateTime start = from == null ? LocalDateTime.MIN : from.atStartOfDay();
+            LocalDateTime end = to == null ? LocalDateTime.MAX : to.plusDays(1).atStartOfDay();
+            candidates = new ArrayList<>();
+            for (List<Entry> entries : byDate.subMap(start, true, end, false).values()) {
+                candidates.addAll(entries);
+            }
+        } else {
+            candidates = byOrderId.values();
+        }
+
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : candidates) {
+            if (entry.matches(orderId, username, from, to)) {
+                result.add(entry);
+            }
+        }
+        result.sort(Comparator.comparing(Entry::getIssued).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public synchronized List<String> getUsernames() {
+        TreeSet<String> usernames = new TreeSet<>();
+        for (Entry entry : byOrderId.values()) {
+            usernames.add(entry.username);
+        }
+        return new ArrayList<>(usernames);
+    }
+
+    public synchronized int size() {
+        return byOrderId.size();
+    }
+
+    //The receipt text of one bill, read with a single positional read from its journal file
+    public String readReceipt(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        try (FileChannel channel = FileChannel.open(journalFolder.resolve(entry.file), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                    throw new IOException("Journal " + entry.file + " ends inside bill " + entry.orderId);
+                }
+            }
+        }
+        String record = new String(buffer.array(), StandardCharsets.UTF_8);
+        int bodyStart = record.indexOf('\n') + 1;
+        int bodyEnd = record.lastIndexOf("#END ");
+        return record.substring(bodyStart, bodyEnd);
+    }
+
+    private void put(Entry entry) {
+        byOrderId.put(entry.orderId, entry);
+        byDate.computeIfAbsent(entry.issued, k -> new ArrayList<>()).add(entry);
+        byUser.computeIfAbsent(entry.username.toLowerCase(), k -> new ArrayList<>()).add(entry);
+        indexedEnd.merge(entry.file, entry.offset + entry.length, Math::max);
+    }
+
+    //False if any line could not be read, in which case the index can't be trusted to cover the journal
+    private boolean loadIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return true;
+        }
+        boolean complete = true;
+        for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            try {
+                if (fields.length != 7) {
+                    throw new IllegalArgumentException("expected 7 fields");
+                }
+                put(new Entry(Integer.parseInt(fields[0]), LocalDateTime.parse(fields[1]), BillWriter.unescape(fields[2]),
+                        Double.parseDouble(fields[3]), fields[4], Long.parseLong(fields[5]), Integer.parseInt(fields[6])));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                complete = false;
+            }
+        }
+        return complete;
+    }
+
+    //Forgets everything loaded and moves index.tsv aside, so catchUp reindexes every journal file from the start
+    private void discardIndex() throws IOException {
+        byOrderId.clear();
+        byDate.clear();
+        byUser.clear();
+        indexedEnd.clear();
+        Files.move(indexPath, journalFolder.resolve(INDEX_FILE + ".bad"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    //Indexes records the journal has beyond what index.tsv covers, e.g. after a crash between the two writes
+    private void catchUp() throws IOException {
+        if (!Files.isDirectory(journalFolder)) {
+            return;
+        }
+        List<Entry> found = new ArrayList<>();
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(journalFolder, "bills-*.log")) {
+            for (Path journal : journals) {
+                String file = journal.getFileName().toString();
+                long from = indexedEnd.getOrDefault(file, 0L);
+                if (Files.size(journal) > from) {
+                    found.addAll(scan(journal, from));
+                }
+            }
+        }
+        if (!found.isEmpty()) {
+            add(found);
+            System.out.println("Bill index caught up with " + found.size() + " bills from the journal");
+        }
+    }
+
+    //Reads the complete #BILL ... #END records of a journal file from the given byte offset on
+    public static List<Entry> scan(Path journal, long from) throws IOException {
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            long size = channel.size() - from;
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            bytes = buffer.array();
+        }
+        String file = journal.getFileName().toString();
+        List<Entry> entries = new ArrayList<>();
+        String[] header = null;
+        int recordStart = 0;
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+            if (line.startsWith("#BILL")) {
+                header = BillWriter.parseHeader(line);
+                recordStart = lineStart;
+            } else if (line.startsWith("#END ") && header != null) {
+                try {
+                    entries.add(new Entry(Integer.parseInt(header[1]), LocalDateTime.parse(header[2]), header[3],
+                            Double.parseDouble(header[4]), file, from + recordStart, i + 1 - recordStart));
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    System.err.println("Skipping unreadable bill header at byte " + (from + recordStart) + " of " + file);
+                }
+                header = null;
+            }
+            lineStart = i + 1;
+        }
+        return entries;
+    }
+
+    private void appendToIndex(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Entry entry : entries) {
+            lines.append(entry.orderId).append('\t').append(entry.issued).append('\t').append(BillWriter.escape(entry.username))
+                    .append('\t').append(entry.amount).append('\t').append(entry.file)
+                    .append('\t').append(entry.offset).append('\t').append(entry.length).append('\n');
+        }
+        Files.createDirectories(journalFolder);
+        Files.writeString(indexPath, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public static class Entry {
+        private final int orderId;
+        private final LocalDateTime issued;
+        private final String username;
+        private final double amount;
+        private final String file;
+        private final long offset;
+        private final int length;
+
+        public Entry(int orderId, LocalDateTime issued, String username, double amount, String file, long offset, int length) {
+            this.orderId = orderId;
+            this.issued = issued;
+            this.username = username;
+            this.amount = amount;
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        boolean matches(Integer orderId, String username, LocalDate from, LocalDate to) {
+            return (orderId == null || this.orderId == orderId)
+                    && (username == null || username.isBlank() || this.username.equalsIgnoreCase(username.trim()))
+                    && (from == null || !issued.toLocalDate().isBefore(from))
+                    && (to == null || !issued.toLocalDate().isAfter(to));
+        }
+
+        public int getOrderId() {
+            return orderId;
+        }
+
+        public LocalDateTime getIssued() {
+            return issued;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DatabaseConnector;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+//End-of-day check of the printed receipts against the database. Every journal file in bills/journal
+//(and, for a full run, the old bills/bill_<orderId>.txt exports) is memory-mapped and parsed in one
+//streaming pass, then the parsed bills are compared with Bill and SoldBookType BATCH_SIZE orders per query:
+//missing bills, totals that differ from Bill.total_amount, and line or unit counts that differ from SoldBookType.
+//Bills in the database between the first and last receipt that have no receipt are reported too, limited to
+//the cashiers named in the scanned journal headers (and to the scanned day), so a till's journals are not
+//blamed for another till's sales. A cashier who worked two tills the same day needs both tills' journals.
+//Lines that can't be parsed are reported as mismatches and the scan goes on.
+//
+//  java application.bookstore.controllers.BillReconciliation [yyyy-MM-dd]
+public class BillReconciliation implements DatabaseConnector {
+    private static final int BATCH_SIZE = 500;
+    private static final double TOLERANCE = 0.005;
+    private static final DateTimeFormatter JOURNAL_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final Map<Integer, ParsedBill> receipts = new TreeMap<>();
+    private final List<String> mismatches = new ArrayList<>();
+    //Cashiers named in the journal headers, the tills whose sales the journals should cover
+    private final Set<String> usernames = new TreeSet<>();
+    private LocalDate day;
+    private int files;
+    private long bytes;
+    private int duplicates;
+    private long scanNanos;
+    private long checkNanos;
+
+    //Parses the journals of the given day, or every journal and exported receipt when day is null
+    public void scan(LocalDate day) throws IOException {
+        long start = System.nanoTime();
+        this.day = day;
+        Path journalFolder = BillWriter.getJournalFolder();
+        String pattern = day == null ? "bills-*.log" : "bills-" + day.format(JOURNAL_DAY) + "*.log";
+        if (Files.isDirectory(journalFolder)) {
+            try (DirectoryStream<Path> journals = Files.newDirectoryStream(journalFolder, pattern)) {
+                for (Path journal : journals) {
+                    scanFile(journal);
+                }
+            }
+        }
+        //Receipts written before the journal existed; anything also in the journal is skipped as a duplicate
+        Path billsFolder = journalFolder.getParent();
+        if (day == null && Files.isDirectory(billsFolder)) {
+            try (DirectoryStream<Path> exports = Files.newDirectoryStream(billsFolder, "bill_*.txt")) {
+                for (Path export : exports) {
+                    scanFile(export);
+                }
+            }
+        }
+        scanNanos = System.nanoTime() - start;
+    }
+
+    private void scanFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            parse(buffer, file.getFileName().toString());
+            files++;
+            bytes += size;
+        }
+    }
+
+    //Walks the mapped bytes line by line. Only lines that carry data are decoded into strings.
+    private void parse(MappedByteBuffer buffer, String file) {
+        ParsedBill current = null;
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+            int length = i - lineStart;
+            if (length > 0) {
+                byte first = buffer.get(lineStart);
+                if (first == '#' || first == '-' || first == 'B' || first == 'T') {
+                    String line = decode(buffer, lineStart, length);
+                    if (line.startsWith("#BILL")) {
+                        current = startBill(current, file);
+                        //A header that can't be read leaves the order number to the "Bill #" line of the receipt
+                        String[] header = BillWriter.parseHeader(line);
+                        if (header != null) {
+                            try {
+                                int orderId = Integer.parseInt(header[1]);
+                                current.headerTotal = Double.parseDouble(header[4]);
+                                current.orderId = orderId;
+                                usernames.add(header[3]);
+                            } catch (NumberFormatException e) {
+                                mismatches.add("Unreadable header in " + file + ": " + line);
+                            }
+                        }
+                    } else if (line.startsWith("#END ")) {
+                        finish(current);
+                        current = null;
+                    } else if (line.startsWith("Bill #")) {
+                        if (current == null) {
+                            current = startBill(null, file);
+                        }
+                        if (current.orderId < 0) {
+                            try {
+                                current.orderId = Integer.parseInt(line.substring(6).trim());
+                            } catch (NumberFormatException e) {
+                                mismatches.add("Unreadable bill number in " + file + ": " + line);
+                            }
+                        }
+                    } else if (line.startsWith("- ") && current != null) {
+                        current.lines++;
+                        try {
+                            current.units += parseQuantity(line);
+                        } catch (NumberFormatException e) {
+                            mismatches.add("Unreadable quantity in " + file + ": " + line);
+                        }
+                    } else if (line.startsWith("Total Amount: $") && current != null) {
+                        try {
+                            current.total = Double.parseDouble(line.substring(15).trim());
+                        } catch (NumberFormatException e) {
+                            mismatches.add("Unreadable total in " + file + ": " + line);
+                        }
+                    }
+                }
+            }
+            lineStart = i + 1;
+        }
+        //Exported receipts have no #END line
+        finish(current);
+    }
+
+    private ParsedBill startBill(ParsedBill unfinished, String file) {
+        if (unfinished != null && unfinished.orderId >= 0) {
+            mismatches.add("Bill #" + unfinished.orderId + " in " + unfinished.file + " has no end marker");
+        }
+        return new ParsedBill(file);
+    }
+
+    private void finish(ParsedBill bill) {
+        if (bill == null || bill.orderId < 0) {
+            return;
+        }
+        if (receipts.containsKey(bill.orderId)) {
+            duplicates++;
+            return;
+        }
+        if (!Double.isNaN(bill.headerTotal) && Math.abs(bill.headerTotal - bill.total) > TOLERANCE) {
+            mismatches.add("Bill #" + bill.orderId + " in " + bill.file + ": header total " + bill.headerTotal
+                    + " but receipt says " + bill.total);
+        }
+        receipts.put(bill.orderId, bill);
+    }
+
+    private static String decode(MappedByteBuffer buffer, int offset, int length) {
+        byte[] line = new byte[length];
+        buffer.get(offset, line);
+        return new String(line, StandardCharsets.UTF_8);
+    }
+
+    //"- Title [ISBN] (Chosen Quantity: 2): $12.5"
+    private static int parseQuantity(String line) {
+        int start = line.lastIndexOf("(Chosen Quantity: ");
+        int end = start < 0 ? -1 : line.indexOf(')', start);
+        if (end < 0) {
+            return 0;
+        }
+        return Integer.parseInt(line.substring(start + 18, end).trim());
+    }
+
+    //Compares the parsed receipts with Bill and SoldBookType, BATCH_SIZE order ids per query
+    public void check() throws SQLException {
+        long start = System.nanoTime();
+        List<Integer> orderIds = new ArrayList<>(receipts.keySet());
+        try (Connection connection = ConnectionPool.getConnection()) {
+            for (int from = 0; from < orderIds.size(); from += BATCH_SIZE) {
+                List<Integer> batch = orderIds.subList(from, Math.min(from + BATCH_SIZE, orderIds.size()));
+                checkBatch(connection, batch);
+            }
+            if (!orderIds.isEmpty() && !usernames.isEmpty()) {
+                checkUnprinted(connection, orderIds.get(0), orderIds.get(orderIds.size() - 1));
+            }
+        }
+        checkNanos = System.nanoTime() - start;
+    }
+
+    private void checkBatch(Connection connection, List<Integer> batch) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+        Map<Integer, Double> totals = new TreeMap<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "SELECT orderId, total_amount FROM Bill WHERE orderId IN (" + placeholders + ")")) {
+            bind(preparedStatement, batch);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    totals.put(resultSet.getInt("orderId"), resultSet.getDouble("total_amount"));
+                }
+            }
+        }
+        Map<Integer, int[]> lines = new TreeMap<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "SELECT orderId, COUNT(*) AS line_count, SUM(soldQuantity) AS units FROM SoldBookType " +
+                        "WHERE orderId IN (" + placeholders + ") GROUP BY orderId")) {
+            bind(preparedStatement, batch);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    lines.put(resultSet.getInt("orderId"), new int[]{resultSet.getInt("line_count"), resultSet.getInt("units")});
+                }
+            }
+        }
+
+        for (int orderId : batch) {
+            ParsedBill receipt = receipts.get(orderId);
+            Double total = totals.get(orderId);
+            if (total == null) {
+                mismatches.add("Bill #" + orderId + " in " + receipt.file + " is not in the database");
+                continue;
+            }
+            if (Math.abs(total - receipt.total) > TOLERANCE) {
+                mismatches.add("Bill #" + orderId + ": receipt total " + receipt.total + ", database total " + total);
+            }
+            int[] sold = lines.getOrDefault(orderId, new int[]{0, 0});
+            if (sold[0] != receipt.lines || sold[1] != receipt.units) {
+                mismatches.add("Bill #" + orderId + ": receipt has " + receipt.lines + " lines / " + receipt.units
+                        + " books, database has " + sold[0] + " lines / " + sold[1] + " books");
+            }
+        }
+    }
+
+    //Bills in the database without a receipt, e.g. because the journal write failed. Only bills by the
+    //cashiers of the scanned journals count, other tills share the order number range.
+    private void checkUnprinted(Connection connection, int firstOrderId, int lastOrderId) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(usernames.size(), "?"));
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "SELECT orderId FROM Bill WHERE orderId BETWEEN ? AND ? AND username IN (" + placeholders + ")" +
+                        (day == null ? "" : " AND date = ?") + " ORDER BY orderId")) {
+            int index = 1;
+            preparedStatement.setInt(index++, firstOrderId);
+            preparedStatement.setInt(index++, lastOrderId);
+            for (String username : usernames) {
+                preparedStatement.setString(index++, username);
+            }
+            if (day != null) {
+                preparedStatement.setDate(index, java.sql.Date.valueOf(day));
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    int orderId = resultSet.getInt("orderId");
+                    if (!receipts.containsKey(orderId)) {
+                        mismatches.add("Bill #" + orderId + " is in the database but has no receipt");
+                    }
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement preparedStatement, List<Integer> orderIds) throws SQLException {
+        for (int i = 0; i < orderIds.size(); i++) {
+            preparedStatement.setInt(i + 1, orderIds.get(i));
+        }
+    }
+
+    public List<String> getMismatches() {
+        return mismatches;
+    }
+
+    public int getBillCount() {
+        return receipts.size();
+    }
+
+    public double getScanBillsPerSecond() {
+        return scanNanos == 0 ? 0 : receipts.size() / (scanNanos / 1_000_000_000.0);
+    }
+
+    public double getBillsPerSecond() {
+        long nanos = scanNanos + checkNanos;
+        return nanos == 0 ? 0 : receipts.size() / (nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "BillReconciliation{" +
+                "files=" + files +
+                ", bytes=" + bytes +
+                ", bills=" + receipts.size() +
+                ", duplicates=" + duplicates +
+                ", mismatches=" + mismatches.size() +
+                ", scanMs=" + String.format("%.2f", scanNanos / 1_000_000.0) +
+                ", checkMs=" + String.format("%.2f", checkNanos / 1_000_000.0) +
+                ", scanBillsPerSec=" + String.format("%.0f", getScanBillsPerSecond()) +
+                ", billsPerSec=" + String.format("%.0f", getBillsPerSecond()) +
+                '}';
+    }
+
+    private static class ParsedBill {
+        private final String file;
+        private int orderId = -1;
+        private double headerTotal = Double.NaN;
+        private double total;
+        private int lines;
+        private int units;
+
+        ParsedBill(String file) {
+            this.file = file;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        LocalDate day = args.length > 0 ? LocalDate.parse(args[0]) : null;
+        BillReconciliation reconciliation = new BillReconciliation();
+        try {
+            reconciliation.scan(day);
+            reconciliation.check();
+        } finally {
+            ConnectionPool.shutdownPool();
+        }
+        for (String mismatch : reconciliation.getMismatches()) {
+            System.out.println(mismatch);
+        }
+        System.out.println(reconciliation);
+    }
+}
@@ -0,0 +1,374 @@
+package application.bookstore.controllers;
+
+import application.bookstore.models.SaleLine;
+import application.bookstore.models.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+//Writes receipts on a background thread so checkout never waits on the disk. Receipts are appended to
+//a journal in bills/journal, one file per day rolled over at JOURNAL_MAX_BYTES, and the journal is
+//fsync'd before a receipt counts as written. Receipts queued together are written and synced as one batch.
+//Each receipt is named after its Bill.orderId, so two checkouts in the same second can't collide.
+//Every durable batch is added to BillArchive's index for lookup by order number, date and cashier.
+//The old one-file-per-bill receipts (bills/bill_<orderId>.txt) are still written unless
+//-Dbookstore.bills.export=false.
+//
+//Journal record format, read back by the bill archive and reconciliation tools. Header fields are
+//tab-separated and the username is escaped (see escape); journals written before that used single spaces.
+//  #BILL\t<orderId>\t<ISO date-time>\t<username>\t<total>
+//  <receipt text>
+//  #END <orderId>
+public class BillWriter {
+    public static final long JOURNAL_MAX_BYTES = 64L * 1024 * 1024;
+    public static final boolean EXPORT_FILES = Boolean.parseBoolean(System.getProperty("bookstore.bills.export", "true"));
+    private static final int MAX_BATCH = 64;
+    private static final DateTimeFormatter JOURNAL_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Receipt SHUTDOWN = new Receipt(-1, null, null, 0, null);
+
+    private static BillWriter instance;
+
+    private final Path billsFolder;
+    private final Path journalFolder;
+    private final BlockingQueue<Receipt> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    //Held while the journal is written, by the writer thread or by a sale that arrives after shutdown
+    private final Object journalLock = new Object();
+    private boolean closed;
+
+    private FileChannel journal;
+    private Path journalPath;
+    private LocalDate journalDay;
+
+    private long written;
+    private long failed;
+    private long batches;
+    private long totalLatencyNanos;
+    private long lastLatencyNanos;
+    private long maxLatencyNanos;
+
+    private BillWriter(Path billsFolder) {
+        this.billsFolder = billsFolder;
+        this.journalFolder = billsFolder.resolve("journal");
+        writerThread = new Thread(this::run, "bill-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public static synchronized BillWriter getInstance() {
+        if (instance == null) {
+            instance = new BillWriter(Paths.get("bills"));
+        }
+        return instance;
+    }
+
+    public static Path getJournalFolder() {
+        return Paths.get("bills", "journal");
+    }
+
+    //Formats the receipt now and queues it. issued is the date stored on the Bill row.
+    //The future completes once the receipt is durable in the journal.
+    public CompletableFuture<Void> submit(int orderId, LocalDateTime issued, User user, List<SaleLine> selectedBooks, double amount) {
+        StringBuilder text = new StringBuilder();
+        text.append("Bill #").append(orderId).append("\n");
+        text.append("Sold by: ").append(user.getFirstName()).append(" ").append(user.getLastName())
+                .append(" Role: ").append(user.getRoleString()).append("\n\n");
+        text.append("Books:\n");
+        for (SaleLine line : selectedBooks) {
+            text.append("- ").append(line.getTitle()).append(" [").append(line.getISBN()).append("]")
+                    .append(" (Chosen Quantity: ").append(line.getQuantity()).append("): $")
+                    .append(line.getSellingPrice()).append("\n");
+        }
+        text.append("\nTotal Amount: $").append(amount).append("\n");
+
+        Receipt receipt = new Receipt(orderId, user.getUsername(), issued, amount, text.toString());
+        synchronized (this) {
+            if (!closed) {
+                queue.add(receipt);
+                return receipt.done;
+            }
+        }
+        //The writer thread has already drained and stopped, so a sale committed during close is written here
+        synchronized (journalLock) {
+            writeBatch(List.of(receipt));
+            closeJournal();
+        }
+        return receipt.done;
+    }
+
+    private void run() {
+        List<Receipt> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            boolean stop = batch.remove(SHUTDOWN);
+            synchronized (journalLock) {
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+                if (stop) {
+                    closeJournal();
+                    return;
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Receipt> batch) {
+        List<BillArchive.Entry> entries = new ArrayList<>();
+        FileChannel channel = null;
+        long batchStart = -1;
+        try {
+            channel = journalFor(LocalDate.now());
+            String file = journalPath.getFileName().toString();
+            batchStart = channel.size();
+            long offset = batchStart;
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            for (Receipt receipt : batch) {
+                String record = "#BILL\t" + receipt.orderId + '\t' + receipt.issued + '\t' + escape(receipt.username) + '\t'
+                        + receipt.amount + '\n' + receipt.text + "#END " + receipt.orderId + '\n';
+                byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+                records.writeBytes(bytes);
+                entries.add(new BillArchive.Entry(receipt.orderId, receipt.issued, receipt.username, receipt.amount,
+                        file, offset, bytes.length));
+                offset += bytes.length;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            //The bills are in the database, the reconciliation tool reports any that never reached the journal
+            System.err.println("Error writing " + batch.size() + " bills to the journal: " + e.getMessage());
+            discardPartialWrite(channel, batchStart);
+            synchronized (this) {
+                failed += batch.size();
+            }
+            for (Receipt receipt : batch) {
+                receipt.done.completeExceptionally(e);
+            }
+            return;
+        }
+
+        long now = System.nanoTime();
+        synchronized (this) {
+            batches++;
+            for (Receipt receipt : batch) {
+                long latency = now - receipt.queuedAt;
+                written++;
+                totalLatencyNanos += latency;
+                lastLatencyNanos = latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            }
+        }
+        try {
+            BillArchive.getInstance().add(entries);
+        } catch (RuntimeException e) {
+            //The receipts are durable, an index problem must not stop the writer or leave their futures pending
+            System.err.println("Error indexing " + entries.size() + " bills: " + e);
+        }
+        for (Receipt receipt : batch) {
+            if (EXPORT_FILES) {
+                exportFile(receipt);
+            }
+            receipt.done.complete(null);
+        }
+    }
+
+    //Cuts a failed batch's bytes off the journal so no half-written record is left ahead of the next one.
+    //If even that fails the journal is reopened for the next batch; readers skip records without an #END.
+    private void discardPartialWrite(FileChannel channel, long batchStart) {
+        if (channel == null || batchStart < 0) {
+            return;
+        }
+        try {
+            if (channel.size() > batchStart) {
+                channel.truncate(batchStart);
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            System.err.println("Error truncating " + journalPath + " back to " + batchStart + ": " + e.getMessage());
+            closeJournal();
+        }
+    }
+
+    //Backslash-escapes tabs, line breaks and backslashes, so a username can't split a header or index line
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    //The fields of a #BILL header line (marker, orderId, date-time, username, total) with the username
+    //unescaped, or null if the line isn't a complete header. Accepts the older space-separated form too.
+    static String[] parseHeader(String line) {
+        String[] fields;
+        if (line.startsWith("#BILL\t")) {
+            fields = line.split("\t", -1);
+        } else if (line.startsWith("#BILL ")) {
+            fields = line.split(" ");
+        } else {
+            return null;
+        }
+        if (fields.length != 5) {
+            return null;
+        }
+        fields[3] = unescape(fields[3]);
+        return fields;
+    }
+
+    private void exportFile(Receipt receipt) {
+        Path file = billsFolder.resolve("bill_" + receipt.orderId + ".txt");
+        try {
+            Files.writeString(file, receipt.text, StandardCharsets.UTF_8);
+            System.out.println("Bill generated successfully. Filename: " + file);
+        } catch (IOException e) {
+            System.err.println("Error generating bill: " + e.getMessage());
+        }
+    }
+
+    //A new journal file each day, and a numbered continuation once the current one is full
+    private FileChannel journalFor(LocalDate day) throws IOException {
+        if (journal != null && day.equals(journalDay) && journal.size() < JOURNAL_MAX_BYTES) {
+            return journal;
+        }
+        closeJournal();
+        Files.createDirectories(journalFolder);
+        String base = "bills-" + day.format(JOURNAL_DAY);
+        Path path = journalFolder.resolve(base + ".log");
+        for (int part = 1; Files.exists(path) && Files.size(path) >= JOURNAL_MAX_BYTES; part++) {
+            path = journalFolder.resolve(base + "-" + part + ".log");
+        }
+        journal = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalPath = path;
+        journalDay = day;
+        return journal;
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            journal = null;
+        }
+    }
+
+    //Writes out everything still queued, then stops the writer thread. The instance is kept, so a receipt
+    //submitted afterwards is written by its caller instead of starting a writer nothing would drain.
+    public static void shutdown() {
+        BillWriter writer;
+        synchronized (BillWriter.class) {
+            writer = instance;
+        }
+        if (writer == null) {
+            return;
+        }
+        synchronized (writer) {
+            if (writer.closed) {
+                return;
+            }
+            writer.closed = true;
+            writer.queue.add(SHUTDOWN);
+        }
+        try {
+            writer.writerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(writer);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    public synchronized long getFailedCount() {
+        return failed;
+    }
+
+    public synchronized double getAverageLatencyMillis() {
+        return written == 0 ? 0 : totalLatencyNanos / 1_000_000.0 / written;
+    }
+
+    public synchronized double getLastLatencyMillis() {
+        return lastLatencyNanos / 1_000_000.0;
+    }
+
+    public synchronized double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1_000_000.0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BillWriter{" +
+                "journal=" + journalPath +
+                ", queued=" + queue.size() +
+                ", written=" + written +
+                ", failed=" + failed +
+                ", batches=" + batches +
+                ", avgLatencyMs=" + String.format("%.2f", getAverageLatencyMillis()) +
+                ", maxLatencyMs=" + String.format("%.2f", getMaxLatencyMillis()) +
+                '}';
+    }
+
+    private static class Receipt {
+        private final int orderId;
+        private final String username;
+        private final LocalDateTime issued;
+        private final double amount;
+        private final String text;
+        private final long queuedAt = System.nanoTime();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Receipt(int orderId, String username, LocalDateTime issued, double amount, String text) {
+            this.orderId = orderId;
+            this.username = username;
+            this.issued = issued;
+            this.amount = amount;
+            this.text = text;
+        }
+    }
+}
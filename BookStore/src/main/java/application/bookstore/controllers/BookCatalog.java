@@ -0,0 +1,366 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.models.Book;
+import application.bookstore.models.SaleLine;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Process-wide cache of the Book table keyed by ISBN. The table is read once, then kept current with
+//deltas from the screens that change books and with a "changed since" query on Book.last_modified,
+//so going back to the bookstore screen no longer re-reads and re-creates every Book.
+//The same Book instances are handed to every view, so edits made through one are seen by all.
+public class BookCatalog implements DatabaseConnector {
+    private static BookCatalog instance;
+
+    private final Map<String, Book> books = new LinkedHashMap<>();
+    //Catalog order of each cached ISBN, so search results are ordered without walking every book
+    private final Map<String, Long> positions = new HashMap<>();
+    private final BookSearchIndex searchIndex = new BookSearchIndex();
+    private long nextPosition;
+    private boolean loaded = false;
+    private Timestamp lastModifiedSeen;
+
+    private long hits;
+    private long misses;
+    private long refreshCount;
+    private long rowsRefreshed;
+    private long totalRefreshNanos;
+    private long lastRefreshNanos;
+
+    private BookCatalog() {
+    }
+
+    public static synchronized BookCatalog getInstance() {
+        if (instance == null) {
+            instance = new BookCatalog();
+        }
+        return instance;
+    }
+
+    public List<Book> getBooks() {
+        ensureLoaded();
+        synchronized (this) {
+            return new ArrayList<>(books.values());
+        }
+    }
+
+    public Book getBook(String isbn) {
+        ensureLoaded();
+        synchronized (this) {
+            return books.get(isbn);
+        }
+    }
+
+    //Books matching the query and category, in catalog order, answered from the search index.
+    //Never reads the database: until the catalog is loaded there is nothing to match.
+    public synchronized List<Book> search(String query, String category) {
+        if (!loaded) {
+            return new ArrayList<>();
+        }
+        Set<String> matches = searchIndex.search(query, category);
+        List<Book> result = new ArrayList<>(matches.size());
+        for (String isbn : matches) {
+            Book book = books.get(isbn);
+            if (book != null) {
+                result.add(book);
+            }
+        }
+        result.sort(Comparator.comparingLong(book -> positions.get(book.getISBN())));
+        return result;
+    }
+
+    public BookSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    //Picks up rows inserted or updated by other tills since the last look, and drops deleted ones.
+    //The queries run without holding the catalog, only the merge of their results does.
+    public void refresh() {
+        Timestamp since;
+        synchronized (this) {
+            since = loaded ? lastModifiedSeen : null;
+        }
+        if (since == null) {
+            loadAll();
+            return;
+        }
+        long start = System.nanoTime();
+        Rows changed;
+        Set<String> present = new HashSet<>();
+        try (Connection connection = ConnectionPool.getConnection()) {
+            try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM Book WHERE last_modified >= ?")) {
+                preparedStatement.setTimestamp(1, since);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    changed = read(resultSet);
+                }
+            }
+            //Deletes leave nothing to find by timestamp, and a count can't tell a delete plus an insert from
+            //no change, so the cached keys are checked against the table's
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT ISBN FROM Book")) {
+                while (resultSet.next()) {
+                    present.add(resultSet.getString("ISBN"));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Incremental catalog refresh failed, reloading the whole catalog: " + e.getMessage());
+            loadAll();
+            return;
+        }
+
+        synchronized (this) {
+            if (!loaded) {
+                //Invalidated while the queries ran, the next read loads everything anyway
+                return;
+            }
+            for (Book row : changed.books) {
+                Book existing = books.get(row.getISBN());
+                if (existing == null) {
+                    store(row);
+                } else {
+                    copy(row, existing);
+                    searchIndex.index(existing);
+                }
+            }
+            trackLastModified(changed.newest);
+            rowsRefreshed += changed.books.size();
+            for (String isbn : new ArrayList<>(books.keySet())) {
+                if (!present.contains(isbn)) {
+                    forget(isbn);
+                }
+            }
+            recordRefresh(System.nanoTime() - start);
+        }
+    }
+
+    public synchronized void invalidate() {
+        books.clear();
+        positions.clear();
+        searchIndex.clear();
+        loaded = false;
+        lastModifiedSeen = null;
+    }
+
+    //Deltas from this till, applied after the database write succeeded
+    public synchronized void put(Book book) {
+        if (loaded) {
+            store(book);
+        }
+    }
+
+    public synchronized void remove(String isbn) {
+        forget(isbn);
+    }
+
+    //lines.get(i) is what was sold of soldBooks.get(i). The basket's own instance is updated too when it
+    //isn't the cached one, as in paged mode.
+    public synchronized void applySale(List<Book> soldBooks, List<SaleLine> lines) {
+        for (int i = 0; i < soldBooks.size(); i++) {
+            Book sold = soldBooks.get(i);
+            int quantity = lines.get(i).getQuantity();
+            Book cached = books.get(sold.getISBN());
+            if (cached != null) {
+                cached.setQuantity(cached.getQuantity() - quantity);
+            }
+            if (cached != sold) {
+                sold.setQuantity(sold.getQuantity() - quantity);
+            }
+        }
+    }
+
+    public List<String> getCategories() {
+        ensureLoaded();
+        List<String> categories = new ArrayList<>();
+        categories.add("All");
+        Set<String> seen = new HashSet<>();
+        synchronized (this) {
+            for (Book book : books.values()) {
+                if (seen.add(book.getCategory().toLowerCase())) {
+                    categories.add(book.getCategory());
+                }
+            }
+        }
+        return categories;
+    }
+
+    public List<Book> getBooksWithLowQuantity(int threshold) {
+        ensureLoaded();
+        List<Book> lowQuantity = new ArrayList<>();
+        synchronized (this) {
+            for (Book book : books.values()) {
+                if (book.getQuantity() < threshold) {
+                    lowQuantity.add(book);
+                }
+            }
+        }
+        return lowQuantity;
+    }
+
+    private void ensureLoaded() {
+        synchronized (this) {
+            if (loaded) {
+                hits++;
+                return;
+            }
+            misses++;
+        }
+        loadAll();
+    }
+
+    //Reads the whole table without holding the catalog, then swaps it in. Books already cached are
+    //updated in place and keep their identity.
+    private void loadAll() {
+        long start = System.nanoTime();
+        Rows rows;
+        try (Connection connection = ConnectionPool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM Book")) {
+            rows = read(resultSet);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        synchronized (this) {
+            Map<String, Book> previous = new HashMap<>(books);
+            books.clear();
+            positions.clear();
+            searchIndex.clear();
+            lastModifiedSeen = null;
+            for (Book row : rows.books) {
+                Book existing = previous.get(row.getISBN());
+                if (existing != null) {
+                    copy(row, existing);
+                    store(existing);
+                } else {
+                    store(row);
+                }
+            }
+            trackLastModified(rows.newest);
+            loaded = true;
+            recordRefresh(System.nanoTime() - start);
+        }
+    }
+
+    private void store(Book book) {
+        books.put(book.getISBN(), book);
+        positions.putIfAbsent(book.getISBN(), nextPosition++);
+        searchIndex.index(book);
+    }
+
+    private void forget(String isbn) {
+        books.remove(isbn);
+        positions.remove(isbn);
+        searchIndex.remove(isbn);
+    }
+
+    private void trackLastModified(Timestamp timestamp) {
+        if (timestamp != null && (lastModifiedSeen == null || timestamp.after(lastModifiedSeen))) {
+            lastModifiedSeen = timestamp;
+        }
+    }
+
+    private void recordRefresh(long nanos) {
+        refreshCount++;
+        lastRefreshNanos = nanos;
+        totalRefreshNanos += nanos;
+    }
+
+    static Book fromResultSet(ResultSet resultSet) throws SQLException {
+        //Covers are not decoded here, the table cells load them on demand from the URL
+        Book book = new Book(resultSet.getString("ISBN"), resultSet.getString("name"),
+                resultSet.getString("author"), resultSet.getString("category"),
+                resultSet.getInt("supplier"), resultSet.getString("description"),
+                resultSet.getDouble("original_price"), resultSet.getDouble("selling_price"),
+                resultSet.getInt("quantity"));
+        book.setImageUrl(resultSet.getString("bookURL"));
+        return book;
+    }
+
+    //Updates in place so rows already shown in a TableView keep their identity
+    public static void copy(Book from, Book to) {
+        to.setTitle(from.getTitle());
+        to.setAuthor(from.getAuthor());
+        to.setCategory(from.getCategory());
+        to.setDescription(from.getDescription());
+        to.setOriginalPrice(from.getOriginalPrice());
+        to.setSellingPrice(from.getSellingPrice());
+        to.setQuantity(from.getQuantity());
+        to.setImageUrl(from.getImageUrl());
+    }
+
+    private static Rows read(ResultSet resultSet) throws SQLException {
+        Rows rows = new Rows();
+        boolean hasLastModified = hasColumn(resultSet, "last_modified");
+        while (resultSet.next()) {
+            rows.books.add(fromResultSet(resultSet));
+            if (hasLastModified) {
+                Timestamp timestamp = resultSet.getTimestamp("last_modified");
+                if (timestamp != null && (rows.newest == null || timestamp.after(rows.newest))) {
+                    rows.newest = timestamp;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static boolean hasColumn(ResultSet resultSet, String column) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (metaData.getColumnLabel(i).equalsIgnoreCase(column)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getRefreshCount() {
+        return refreshCount;
+    }
+
+    public synchronized long getRowsRefreshed() {
+        return rowsRefreshed;
+    }
+
+    public synchronized double getLastRefreshMillis() {
+        return lastRefreshNanos / 1_000_000.0;
+    }
+
+    public synchronized double getAverageRefreshMillis() {
+        return refreshCount == 0 ? 0 : totalRefreshNanos / 1_000_000.0 / refreshCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BookCatalog{" +
+                "books=" + books.size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", refreshes=" + refreshCount +
+                ", rowsRefreshed=" + rowsRefreshed +
+                ", lastRefreshMs=" + String.format("%.2f", getLastRefreshMillis()) +
+                '}';
+    }
+
+    //Books read from a query, and the newest last_modified among them
+    private static class Rows {
+        private final List<Book> books = new ArrayList<>();
+        private Timestamp newest;
+    }
+}
@@ -1,106 +1,38 @@
 package application.bookstore.controllers;
 
+import application.bookstore.auxiliaries.ConnectionPool;
 import application.bookstore.auxiliaries.DatabaseConnector;
-import application.bookstore.models.Book;
+import application.bookstore.auxiliaries.ImageCache;
+import application.bookstore.models.SaleLine;
 import application.bookstore.models.User;
-import javafx.collections.ObservableList;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 
 public class BookController implements DatabaseConnector {
 
-    public static void generateBill(User user, ObservableList<Book> selectedBooks, double amount) {
-        File billsFolder = new File("bills");
-        if (!billsFolder.exists()) {
-            billsFolder.mkdir();
-        }
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-        String timestamp = LocalDateTime.now().format(formatter);
-        String fileName = "bills/bill_" + timestamp + ".txt";
-
-        try (FileWriter writer = new FileWriter(fileName)) {
-            writer.write("Sold by: " + user.getFirstName() + " " + user.getLastName() + " Role: " + user.getRoleString() + "\n\n");
-            writer.write("Books:\n");
-            for (Book book : selectedBooks) {
-                String bookInfo = book.getTitle() + " - $" + book.getSellingPrice() + "\n";
-                writer.write("- " + book.getTitle() + " (Chosen Quantity: " + book.getChosenQuantity() + "): $" + book.getSellingPrice());
-                writer.write(bookInfo);
-            }
-            writer.write("\nTotal Amount: $" + amount);
-            updateQuantity(selectedBooks);
-
-            System.out.println("Bill generated successfully. Filename: " + fileName);
-
-        } catch (IOException e) {
-            System.err.println("Error generating bill: " + e.getMessage());
-        }
-    }
-
-    public static void updateQuantity(ObservableList<Book> selectedBooks) {
-        for (Book book : selectedBooks) {
-            String updateSQL = "UPDATE book SET quantity = ? WHERE ISBN = ?";
-            try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-                 PreparedStatement preparedStatement = connection.prepareStatement(updateSQL)) {
-                int newQuantity = book.getQuantity() - book.getChosenQuantity();
-                preparedStatement.setInt(1, newQuantity);
-                preparedStatement.setString(2, book.getISBN());
-                preparedStatement.executeUpdate();
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
-            }
-        }
+    //The receipt is formatted now and written to the bill journal by BillWriter's background thread
+    public static void generateBill(int orderId, LocalDateTime issued, User user, List<SaleLine> selectedBooks, double amount) {
+        BillWriter.getInstance().submit(orderId, issued, user, selectedBooks, amount);
     }
 
-    public static void deleteBook(String isbn) {
-        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+    //False if the row could not be deleted, e.g. when a bill still refers to the book
+    public static boolean deleteBook(String isbn) {
+        try (Connection connection = ConnectionPool.getConnection()) {
             String deleteSql = "DELETE FROM Book WHERE ISBN = ?";
             try (PreparedStatement preparedStatement = connection.prepareStatement(deleteSql)) {
                 preparedStatement.setString(1, isbn);
                 preparedStatement.executeUpdate();
             }
+            BookCatalog.getInstance().remove(isbn);
+            ImageCache.getInstance().invalidate(isbn);
         } catch (SQLException e) {
             e.printStackTrace();
+            return false;
         }
-    }
-
-    public static void generateBillToDatabase(ObservableList<Book> selectedBooks, double amount, User user) {
-        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-            LocalDateTime timestamp = LocalDateTime.now();
-
-            String createSQL = "INSERT INTO Bill (date, username, total_amount) VALUES (?, ?, ?)";
-            PreparedStatement preparedStatement = connection.prepareStatement(createSQL, Statement.RETURN_GENERATED_KEYS);
-            preparedStatement.setObject(1, timestamp);
-            preparedStatement.setString(2, user.getUsername());
-            preparedStatement.setDouble(3, amount);
-            preparedStatement.executeUpdate();
-
-            ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
-            int orderId;
-            if (generatedKeys.next()) {
-                orderId = generatedKeys.getInt(1);
-            } else {
-                throw new SQLException("Failed to retrieve auto-generated keys.");
-            }
-
-            for (Book book : selectedBooks) {
-                String createeSQL = "INSERT INTO SoldBookType (ISBN, amount, soldQuantity, orderId) VALUES (?, ?, ?, ?)";
-                PreparedStatement preparedStatementt = connection.prepareStatement(createeSQL);
-                preparedStatementt.setString(1, book.getISBN());
-                preparedStatementt.setDouble(2, (book.getSellingPrice() - book.getOriginalPrice()));
-                preparedStatementt.setInt(3, book.getChosenQuantity());
-                preparedStatementt.setInt(4, orderId);
-                preparedStatementt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        //The delete trigger released the book's cover, the file goes with the next scheduled "CoverStore gc"
+        return true;
     }
 }
-
@@ -4,41 +4,28 @@ import application.bookstore.auxiliaries.Alerts;
 import application.bookstore.auxiliaries.DatabaseConnector;
 import application.bookstore.models.Book;
 import javafx.scene.control.Alert;
-import javafx.scene.image.Image;
 
-import java.sql.*;
 import java.util.ArrayList;
+import java.util.List;
 
 public class BookList implements DatabaseConnector {
     ArrayList<Book> books = new ArrayList<>();
     ArrayList<String> categories = new ArrayList<>();
-    static ArrayList<Book> booksWithLowQuantity = new ArrayList<>();
+    static List<Book> booksWithLowQuantity = new ArrayList<>();
     public ArrayList<Book> getBooks() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery("SELECT * FROM Book");
-            categories.add("All");
-            while (resultSet.next()) {
-                Book book = new Book(resultSet.getString("ISBN"), resultSet.getString("name"),
-                        resultSet.getString("author"), resultSet.getString("category"),
-                        resultSet.getInt("supplier") ,resultSet.getString("description"),
-                        new Image(resultSet.getString("bookURL")), resultSet.getDouble("original_price"),
-                        resultSet.getDouble("selling_price"), resultSet.getInt("quantity"));
-                books.add(book);
-                categories.add(book.getCategory());
-                if(book.getQuantity() < 5){
-                    booksWithLowQuantity.add(book);
-                }
-            }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException(e);
-        }
+        //Served from the shared catalog cache, only rows changed since the last visit are read
+        BookCatalog catalog = BookCatalog.getInstance();
+        catalog.refresh();
+        books = new ArrayList<>(catalog.getBooks());
+        categories = new ArrayList<>(catalog.getCategories());
+        booksWithLowQuantity = catalog.getBooksWithLowQuantity(5);
         return books;
     }
+    //Paged mode: categories and low stock come straight from the database, the books themselves from BookPager
+    public void loadSummary() {
+        categories = BookPager.getCategories();
+        booksWithLowQuantity = BookPager.getBooksWithLowQuantity(5);
+    }
     public static  void notifyLowQuantity() {
         StringBuilder notify = new StringBuilder();
         notify.append("Low Quantity for the following books:\n");
@@ -57,4 +44,3 @@ public class BookList implements DatabaseConnector {
         return  categories;
     }
 }
-
@@ -0,0 +1,405 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DataAccess;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.models.Book;
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+//Paged data source for the catalog table, used when CATALOG_MODE is "paged". Pages are read with
+//keyset queries (WHERE (sortColumn, ISBN) > (last row shown), ORDER BY sortColumn, ISBN LIMIT n)
+//so a page costs the same at row 100 as at row 100000, and only a sliding window of
+//CATALOG_MAX_RESIDENT_PAGES pages is kept in the table's items. The page after the window is read
+//in the background while the user is still looking at the current one. Every read runs on DataAccess.
+//All public methods are called on the JavaFX thread.
+public class BookPager implements DatabaseConnector {
+    //Table property -> (database column, value of that column on a Book); ISBN is the tie-breaker for every sort
+    private static final Map<String, SortKey> SORT_KEYS = new LinkedHashMap<>();
+
+    static {
+        SORT_KEYS.put("ISBN", new SortKey("ISBN", Book::getISBN));
+        SORT_KEYS.put("title", new SortKey("name", Book::getTitle));
+        SORT_KEYS.put("author", new SortKey("author", Book::getAuthor));
+        SORT_KEYS.put("category", new SortKey("category", Book::getCategory));
+        SORT_KEYS.put("quantity", new SortKey("quantity", Book::getQuantity));
+        SORT_KEYS.put("sellingPrice", new SortKey("selling_price", Book::getSellingPrice));
+        SORT_KEYS.put("originalPrice", new SortKey("original_price", Book::getOriginalPrice));
+    }
+
+    private final ObservableList<Book> items;
+    private final int pageSize;
+    private final int maxResident;
+
+    private SortKey sortKey = SORT_KEYS.get("ISBN");
+    private boolean ascending = true;
+    private String query = "";
+    private String category = "All";
+
+    private boolean atStart = true;
+    private boolean atEnd = false;
+    private boolean loading = false;
+    //Bumped on every reset so pages still in flight for an older sort or filter are dropped
+    private long generation;
+    private CompletableFuture<List<Book>> prefetchedNext;
+    private Book prefetchedAfter;
+    private IntConsumer onShift = delta -> { };
+    private final Map<String, WeakReference<Book>> instances = new HashMap<>();
+    //Sort value of each resident row as read with its page, by ISBN. The Book itself can change meanwhile
+    //(an edit, a sale), and a keyset read from the changed value would skip or repeat rows.
+    private final Map<String, Object> keyValues = new HashMap<>();
+
+    private long pagesLoaded;
+    private long prefetchHits;
+    private long totalPageNanos;
+
+    public BookPager(ObservableList<Book> items) {
+        this(items, CATALOG_PAGE_SIZE, CATALOG_MAX_RESIDENT_PAGES);
+    }
+
+    public BookPager(ObservableList<Book> items, int pageSize, int maxResidentPages) {
+        this.items = items;
+        this.pageSize = pageSize;
+        this.maxResident = pageSize * maxResidentPages;
+    }
+
+    public static boolean isSortable(String property) {
+        return SORT_KEYS.containsKey(property);
+    }
+
+    //Called with how many rows the window moved by at the top (positive when rows were added above the
+    //ones on screen, negative when rows were dropped), so the view can keep the same rows in view
+    public void setOnShift(IntConsumer onShift) {
+        this.onShift = onShift;
+    }
+
+    public void setSort(String property, boolean ascending) {
+        SortKey key = SORT_KEYS.getOrDefault(property, SORT_KEYS.get("ISBN"));
+        if (key == sortKey && ascending == this.ascending) {
+            return;
+        }
+        this.sortKey = key;
+        this.ascending = ascending;
+        reset();
+    }
+
+    public void setFilter(String query, String category) {
+        this.query = query == null ? "" : query.trim();
+        this.category = category == null ? "All" : category;
+        reset();
+    }
+
+    //Starts over from the first page of the current sort and filter
+    public void reset() {
+        generation++;
+        prefetchedNext = null;
+        prefetchedAfter = null;
+        keyValues.clear();
+        loading = true;
+        atStart = true;
+        long requested = generation;
+        DataAccess.supplyAsync(() -> fetch(null, true))
+                .whenComplete((books, error) -> Platform.runLater(() -> {
+                    if (requested != generation) {
+                        return;
+                    }
+                    loading = false;
+                    if (error != null) {
+                        error.printStackTrace();
+                        return;
+                    }
+                    atEnd = books.size() < pageSize;
+                    items.setAll(resolve(books));
+                    prefetchNext();
+                }));
+    }
+
+    public void loadNext() {
+        if (atEnd || loading || items.isEmpty()) {
+            return;
+        }
+        Book last = items.get(items.size() - 1);
+        CompletableFuture<List<Book>> page;
+        if (prefetchedNext != null && prefetchedAfter == last) {
+            page = prefetchedNext;
+            if (page.isDone()) {
+                prefetchHits++;
+            }
+        } else {
+            Anchor anchor = anchorOf(last);
+            page = DataAccess.supplyAsync(() -> fetch(anchor, true));
+        }
+        prefetchedNext = null;
+        loading = true;
+        long requested = generation;
+        page.whenComplete((books, error) -> Platform.runLater(() -> {
+            if (requested != generation) {
+                return;
+            }
+            loading = false;
+            if (error != null) {
+                error.printStackTrace();
+                return;
+            }
+            appendPage(books);
+        }));
+    }
+
+    public void loadPrevious() {
+        if (atStart || loading || items.isEmpty()) {
+            return;
+        }
+        Anchor anchor = anchorOf(items.get(0));
+        loading = true;
+        long requested = generation;
+        DataAccess.supplyAsync(() -> fetch(anchor, false))
+                .whenComplete((books, error) -> Platform.runLater(() -> {
+                    if (requested != generation) {
+                        return;
+                    }
+                    loading = false;
+                    if (error != null) {
+                        error.printStackTrace();
+                        return;
+                    }
+                    prependPage(books);
+                }));
+    }
+
+    private void appendPage(List<Book> books) {
+        atEnd = books.size() < pageSize;
+        items.addAll(resolve(books));
+        int excess = items.size() - maxResident;
+        if (excess > 0) {
+            forget(items.subList(0, excess));
+            items.remove(0, excess);
+            atStart = false;
+            onShift.accept(-excess);
+        }
+        prefetchNext();
+    }
+
+    private void prependPage(List<Book> books) {
+        atStart = books.size() < pageSize;
+        items.addAll(0, resolve(books));
+        int excess = items.size() - maxResident;
+        if (excess > 0) {
+            forget(items.subList(items.size() - excess, items.size()));
+            items.remove(items.size() - excess, items.size());
+            atEnd = false;
+            prefetchedNext = null;
+        }
+        onShift.accept(books.size());
+        prefetchNext();
+    }
+
+    //Swaps fetched rows for the Book instances already handed out for those ISBNs, updated with the fresh
+    //values, so a row that scrolls out and back in is still the one in the basket and keeps its tick.
+    //Instances are held weakly: once neither the window nor the basket refers to one it can be collected.
+    private List<Book> resolve(List<Book> page) {
+        List<Book> resolved = new ArrayList<>(page.size());
+        for (Book fetched : page) {
+            keyValues.put(fetched.getISBN(), sortKey.extractor.apply(fetched));
+            WeakReference<Book> reference = instances.get(fetched.getISBN());
+            Book existing = reference == null ? null : reference.get();
+            if (existing != null) {
+                BookCatalog.copy(fetched, existing);
+                resolved.add(existing);
+            } else {
+                instances.put(fetched.getISBN(), new WeakReference<>(fetched));
+                resolved.add(fetched);
+            }
+        }
+        if (instances.size() > 2 * maxResident) {
+            instances.values().removeIf(reference -> reference.get() == null);
+        }
+        return resolved;
+    }
+
+    private void forget(List<Book> dropped) {
+        for (Book book : dropped) {
+            keyValues.remove(book.getISBN());
+        }
+    }
+
+    //Taken on the FX thread, so the read thread never looks at keyValues or the Book
+    private Anchor anchorOf(Book book) {
+        Object value = keyValues.get(book.getISBN());
+        return new Anchor(book.getISBN(), value != null ? value : sortKey.extractor.apply(book));
+    }
+
+    private void prefetchNext() {
+        if (atEnd || items.isEmpty()) {
+            return;
+        }
+        Book last = items.get(items.size() - 1);
+        if (prefetchedNext != null && prefetchedAfter == last) {
+            return;
+        }
+        prefetchedAfter = last;
+        Anchor anchor = anchorOf(last);
+        prefetchedNext = DataAccess.supplyAsync(() -> fetch(anchor, true));
+    }
+
+    //Reads the page after (forward) or before (backward) the anchor row, or the first page when anchor is null
+    private List<Book> fetch(Anchor anchor, boolean forward) {
+        long start = System.nanoTime();
+        boolean descending = ascending != forward;
+        String column = sortKey.column;
+        String comparison = descending ? "<" : ">";
+        String order = descending ? " DESC" : " ASC";
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM Book WHERE 1 = 1");
+        List<Object> parameters = new ArrayList<>();
+        appendFilter(sql, parameters);
+        if (anchor != null) {
+            if (column.equals("ISBN")) {
+                sql.append(" AND ISBN ").append(comparison).append(" ?");
+            } else {
+                //Row constructor form, so MySQL range-scans the (column, ISBN) index of catalog_paging.sql
+                sql.append(" AND (").append(column).append(", ISBN) ").append(comparison).append(" (?, ?)");
+                parameters.add(anchor.value);
+            }
+            parameters.add(anchor.isbn);
+        }
+        sql.append(" ORDER BY ").append(column).append(order);
+        if (!column.equals("ISBN")) {
+            sql.append(", ISBN").append(order);
+        }
+        sql.append(" LIMIT ?");
+        parameters.add(pageSize);
+
+        List<Book> page = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < parameters.size(); i++) {
+                preparedStatement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    page.add(BookCatalog.fromResultSet(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        if (!forward) {
+            Collections.reverse(page);
+        }
+        synchronized (this) {
+            pagesLoaded++;
+            totalPageNanos += System.nanoTime() - start;
+        }
+        return page;
+    }
+
+    //Same matching as the in-memory search: every word must appear in the title, author, ISBN or category
+    private void appendFilter(StringBuilder sql, List<Object> parameters) {
+        if (!"All".equals(category)) {
+            sql.append(" AND category = ?");
+            parameters.add(category);
+        }
+        for (String word : BookSearchIndex.tokenize(query)) {
+            sql.append(" AND (name LIKE ? OR author LIKE ? OR REPLACE(ISBN, '-', '') LIKE ? OR category LIKE ?)");
+            String pattern = "%" + word.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            for (int i = 0; i < 4; i++) {
+                parameters.add(pattern);
+            }
+        }
+    }
+
+    //The summary the bookstore screen needs without holding the whole catalog
+    public static ArrayList<String> getCategories() {
+        ArrayList<String> categories = new ArrayList<>();
+        categories.add("All");
+        try (Connection connection = ConnectionPool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT DISTINCT category FROM Book ORDER BY category")) {
+            while (resultSet.next()) {
+                categories.add(resultSet.getString("category"));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return categories;
+    }
+
+    public static List<Book> getBooksWithLowQuantity(int threshold) {
+        List<Book> lowQuantity = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("SELECT * FROM Book WHERE quantity < ?")) {
+            preparedStatement.setInt(1, threshold);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    lowQuantity.add(BookCatalog.fromResultSet(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return lowQuantity;
+    }
+
+    public int getResidentCount() {
+        return items.size();
+    }
+
+    public synchronized long getPagesLoaded() {
+        return pagesLoaded;
+    }
+
+    public long getPrefetchHits() {
+        return prefetchHits;
+    }
+
+    public synchronized double getAveragePageMillis() {
+        return pagesLoaded == 0 ? 0 : totalPageNanos / 1_000_000.0 / pagesLoaded;
+    }
+
+    @Override
+    public String toString() {
+        return "BookPager{" +
+                "sort=" + sortKey.column + (ascending ? " ASC" : " DESC") +
+                ", resident=" + items.size() + "/" + maxResident +
+                ", pagesLoaded=" + getPagesLoaded() +
+                ", prefetchHits=" + prefetchHits +
+                ", avgPageMs=" + String.format("%.2f", getAveragePageMillis()) +
+                '}';
+    }
+
+    private static class Anchor {
+        private final String isbn;
+        private final Object value;
+
+        Anchor(String isbn, Object value) {
+            this.isbn = isbn;
+            this.value = value;
+        }
+    }
+
+    private static class SortKey {
+        private final String column;
+        private final Function<Book, Object> extractor;
+
+        SortKey(String column, Function<Book, Object> extractor) {
+            this.column = column;
+            this.extractor = extractor;
+        }
+    }
+}
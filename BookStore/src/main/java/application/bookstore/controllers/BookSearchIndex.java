@@ -0,0 +1,207 @@
+package application.bookstore.controllers;
+
+import application.bookstore.models.Book;
+
+import java.text.Normalizer;
+import java.util.*;
+
+//In-memory search index over title, author, ISBN and category, kept up to date by BookCatalog.
+//Every word is stored in a sorted token map for prefix lookups and split into trigrams for substring
+//lookups, so a query only touches the few books sharing its grams instead of scanning the catalog.
+//Category postings double as facets for the category filter.
+public class BookSearchIndex {
+    private static final int GRAM = 3;
+
+    private final Map<String, Set<String>> tokenPostings = new TreeMap<>();
+    private final Map<String, Set<String>> gramPostings = new HashMap<>();
+    private final Map<String, Set<String>> categoryPostings = new HashMap<>();
+    private final Map<String, Document> documents = new HashMap<>();
+
+    private long queryCount;
+    private long totalQueryNanos;
+    private long lastQueryNanos;
+
+    public synchronized void index(Book book) {
+        remove(book.getISBN());
+        Document document = new Document(book);
+        documents.put(document.isbn, document);
+        for (String token : document.tokens) {
+            tokenPostings.computeIfAbsent(token, k -> new HashSet<>()).add(document.isbn);
+            for (String gram : grams(token)) {
+                gramPostings.computeIfAbsent(gram, k -> new HashSet<>()).add(document.isbn);
+            }
+        }
+        categoryPostings.computeIfAbsent(document.category, k -> new HashSet<>()).add(document.isbn);
+    }
+
+    public synchronized void remove(String isbn) {
+        Document document = documents.remove(isbn);
+        if (document == null) {
+            return;
+        }
+        for (String token : document.tokens) {
+            removePosting(tokenPostings, token, isbn);
+            for (String gram : grams(token)) {
+                removePosting(gramPostings, gram, isbn);
+            }
+        }
+        removePosting(categoryPostings, document.category, isbn);
+    }
+
+    public synchronized void clear() {
+        tokenPostings.clear();
+        gramPostings.clear();
+        categoryPostings.clear();
+        documents.clear();
+    }
+
+    //ISBNs of the books matching every word of the query within the category ("All" or null for any).
+    //Words of three or more characters match anywhere inside a word, shorter ones match word prefixes.
+    public synchronized Set<String> search(String query, String category) {
+        long start = System.nanoTime();
+        Set<String> result = null;
+        if (category != null && !"All".equals(category)) {
+            result = new HashSet<>(categoryPostings.getOrDefault(normalize(category), Collections.emptySet()));
+        }
+        for (String word : tokenize(query)) {
+            Set<String> matches = word.length() >= GRAM ? substringMatches(word) : prefixMatches(word);
+            if (result == null) {
+                result = matches;
+            } else {
+                result.retainAll(matches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        if (result == null) {
+            result = new HashSet<>(documents.keySet());
+        }
+        lastQueryNanos = System.nanoTime() - start;
+        totalQueryNanos += lastQueryNanos;
+        queryCount++;
+        return result;
+    }
+
+    //Number of matching books per category, for showing facet counts next to a result
+    public synchronized Map<String, Integer> facetCounts(Set<String> isbns) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (String isbn : isbns) {
+            Document document = documents.get(isbn);
+            if (document != null) {
+                counts.merge(document.displayCategory, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private Set<String> prefixMatches(String prefix) {
+        Set<String> matches = new HashSet<>();
+        SortedMap<String, Set<String>> range = ((TreeMap<String, Set<String>>) tokenPostings)
+                .subMap(prefix, prefix + Character.MAX_VALUE);
+        for (Set<String> isbns : range.values()) {
+            matches.addAll(isbns);
+        }
+        return matches;
+    }
+
+    private Set<String> substringMatches(String word) {
+        //Intersect the postings of the word's grams, starting from the rarest, then confirm the candidates
+        List<Set<String>> postings = new ArrayList<>();
+        for (String gram : grams(word)) {
+            Set<String> isbns = gramPostings.get(gram);
+            if (isbns == null) {
+                return new HashSet<>();
+            }
+            postings.add(isbns);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<String> matches = new HashSet<>();
+        for (String isbn : postings.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(isbn);
+            }
+            if (inAll && documents.get(isbn).containsSubstring(word)) {
+                matches.add(isbn);
+            }
+        }
+        return matches;
+    }
+
+    private static void removePosting(Map<String, Set<String>> postings, String key, String isbn) {
+        Set<String> isbns = postings.get(key);
+        if (isbns != null) {
+            isbns.remove(isbn);
+            if (isbns.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> grams(String token) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= token.length(); i++) {
+            grams.add(token.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    //Lower case without accents, so "Émile" is found by "emile"
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT).trim();
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        //Hyphens are dropped rather than split on so "978-0-13" still matches the stored ISBN digits
+        for (String token : normalize(text).replace("-", "").split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    public synchronized double getLastQueryMicros() {
+        return lastQueryNanos / 1_000.0;
+    }
+
+    public synchronized double getAverageQueryMicros() {
+        return queryCount == 0 ? 0 : totalQueryNanos / 1_000.0 / queryCount;
+    }
+
+    private static class Document {
+        private final String isbn;
+        private final String category;
+        private final String displayCategory;
+        private final Set<String> tokens = new HashSet<>();
+
+        Document(Book book) {
+            this.isbn = book.getISBN();
+            this.displayCategory = book.getCategory() == null ? "" : book.getCategory();
+            this.category = normalize(displayCategory);
+            tokens.addAll(tokenize(book.getTitle()));
+            tokens.addAll(tokenize(book.getAuthor()));
+            tokens.addAll(tokenize(book.getISBN()));
+            tokens.addAll(tokenize(book.getCategory()));
+        }
+
+        boolean containsSubstring(String word) {
+            for (String token : tokens) {
+                if (token.contains(word)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
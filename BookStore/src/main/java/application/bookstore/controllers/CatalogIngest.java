@@ -0,0 +1,528 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.CoverImporter;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.auxiliaries.Isbn;
+import application.bookstore.models.Supplier;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+//Bulk ingestion of a supplier shipment: a manifest with one book per row plus a folder with the covers.
+//The manifest is streamed chunkSize rows at a time. Each chunk resolves its suppliers in one go through
+//SupplierRepository, waits for its covers (imported by CoverImporter while the rest of the file is read),
+//then writes its books as one batched upsert in one transaction. A book that is already in the catalog
+//gets its details replaced and the shipped quantity added to its stock.
+//Rejected rows are reported with their line (CSV) or record (JSON) number and reason.
+//
+//CSV manifests need a header naming the columns, in any order:
+//  isbn,title,author,category,description,originalPrice,sellingPrice,quantity,
+//  supplierName,supplierEmail,supplierPhone,supplierAddress,image
+//JSON manifests are an array of flat objects with the same keys, or one object per line.
+//image is a file name in the image folder and may be empty; description, supplierPhone and supplierAddress are optional.
+//ISBNs may be ISBN-10 or ISBN-13, with or without hyphens, and are stored without them (Isbn.normalize).
+//
+//  java application.bookstore.controllers.CatalogIngest <manifest.csv|manifest.json> [imageFolder] [chunkSize]
+public class CatalogIngest implements DatabaseConnector {
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    public static final int COVER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final String[] REQUIRED = {"isbn", "title", "author", "category", "originalPrice", "sellingPrice",
+            "quantity", "supplierName", "supplierEmail"};
+    private static final int MAX_LENGTH = 30;
+    private static final String EMAIL_PATTERN = "[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}";
+    private static final String PHONE_PATTERN = "\\d{10}";
+    //A book without a new cover keeps the one it has
+    private static final String UPSERT_BOOK_SQL =
+            "INSERT INTO Book (ISBN, name, author, category, supplier, description, bookURL, original_price, selling_price, quantity) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                    "name = VALUES(name), author = VALUES(author), category = VALUES(category), supplier = VALUES(supplier), " +
+                    "description = VALUES(description), bookURL = COALESCE(VALUES(bookURL), bookURL), " +
+                    "original_price = VALUES(original_price), selling_price = VALUES(selling_price), " +
+                    "quantity = quantity + VALUES(quantity)";
+
+    private final Path imageFolder;
+    private final int chunkSize;
+    private final List<String> rejected = new ArrayList<>();
+    //Every ISBN seen in the manifest so far; a second row for the same book would race on its cover
+    private final Set<String> seenIsbns = new HashSet<>();
+    private int rows;
+    private int upserted;
+    private int covers;
+    private long nanos;
+
+    public CatalogIngest(Path imageFolder) {
+        this(imageFolder, DEFAULT_CHUNK_SIZE);
+    }
+
+    public CatalogIngest(Path imageFolder, int chunkSize) {
+        this.imageFolder = imageFolder;
+        this.chunkSize = chunkSize;
+    }
+
+    //Reads .json, .jsonl and .ndjson manifests as JSON and anything else as CSV
+    public void ingest(Path manifest) throws IOException, SQLException {
+        String name = manifest.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean json = name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson");
+        long start = System.nanoTime();
+        CoverImporter coverImporter = new CoverImporter(COVER_THREADS);
+        try (coverImporter;
+             BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8);
+             Connection connection = ConnectionPool.getConnection()) {
+            RecordReader records = json ? new JsonRecords(reader) : new CsvRecords(reader);
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            Map<String, String> record;
+            while ((record = records.next()) != null) {
+                rows++;
+                String problem = records.problem();
+                Row row = problem != null ? reject(records.label(), problem) : validate(records.label(), record);
+                if (row == null) {
+                    continue;
+                }
+                if (row.image != null) {
+                    row.cover = submitCover(coverImporter, row);
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(connection, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(connection, chunk);
+            }
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    //Returns the parsed row, or null after recording why it was rejected
+    private Row validate(String label, Map<String, String> record) {
+        for (String column : REQUIRED) {
+            if (record.getOrDefault(column, "").isEmpty()) {
+                return reject(label, "empty " + column);
+            }
+        }
+        Row row = new Row(label);
+        row.isbn = Isbn.normalize(record.get("isbn"));
+        row.title = record.get("title");
+        row.author = record.get("author");
+        row.category = record.get("category");
+        row.description = record.getOrDefault("description", "");
+        if (!Isbn.isValid(row.isbn)) {
+            return reject(label, "ISBN " + record.get("isbn") + " is not an ISBN-10 or ISBN-13");
+        }
+        for (String value : new String[]{row.title, row.author, row.category}) {
+            if (value.length() > MAX_LENGTH) {
+                return reject(label, value + " is longer than " + MAX_LENGTH + " characters");
+            }
+        }
+        try {
+            row.originalPrice = Double.parseDouble(record.get("originalPrice"));
+            row.sellingPrice = Double.parseDouble(record.get("sellingPrice"));
+            row.quantity = Integer.parseInt(record.get("quantity"));
+        } catch (NumberFormatException e) {
+            return reject(label, "prices must be numbers and quantity a whole number");
+        }
+        if (row.originalPrice < 0 || row.sellingPrice < 0 || row.quantity < 0) {
+            return reject(label, "prices and quantity cannot be negative");
+        }
+
+        String email = record.get("supplierEmail");
+        String phone = record.getOrDefault("supplierPhone", "");
+        if (!email.matches(EMAIL_PATTERN)) {
+            return reject(label, "invalid supplier email " + email);
+        }
+        if (!phone.isEmpty() && !phone.matches(PHONE_PATTERN)) {
+            return reject(label, "supplier phone must be 10 digits");
+        }
+        row.supplier = new Supplier(record.get("supplierName"), email, phone.isEmpty() ? null : phone,
+                record.getOrDefault("supplierAddress", ""));
+
+        String image = record.getOrDefault("image", "");
+        if (!image.isEmpty()) {
+            File file = imageFolder.resolve(image).toFile();
+            if (!file.isFile()) {
+                return reject(label, "cover " + image + " not found in " + imageFolder);
+            }
+            row.image = file;
+        }
+        if (!seenIsbns.add(row.isbn)) {
+            return reject(label, "ISBN " + row.isbn + " appears twice in the manifest");
+        }
+        return row;
+    }
+
+    private Row reject(String label, String reason) {
+        rejected.add(label + ": " + reason);
+        return null;
+    }
+
+    private void writeChunk(Connection connection, List<Row> chunk) throws SQLException {
+        List<Supplier> suppliers = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            suppliers.add(row.supplier);
+        }
+        Map<String, Integer> supplierIds = SupplierRepository.getInstance().resolveAll(suppliers);
+
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            row.supplierId = supplierIds.get(row.supplier.getEmail().trim().toLowerCase(Locale.ROOT));
+            if (row.cover != null && !awaitCover(row)) {
+                continue;
+            }
+            accepted.add(row);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_BOOK_SQL)) {
+            for (Row row : accepted) {
+                bind(preparedStatement, row);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            connection.commit();
+            upserted += accepted.size();
+        } catch (BatchUpdateException e) {
+            //One of the rows doesn't fit the table; write row by row to find it and keep the others
+            connection.rollback();
+            connection.setAutoCommit(true);
+            upsertOneByOne(connection, accepted);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static Future<String> submitCover(CoverImporter coverImporter, Row row) throws IOException {
+        try {
+            return coverImporter.submit(row.isbn, row.image);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing covers", e);
+        }
+    }
+
+    //A cover that couldn't be copied rejects its row, so the book isn't added with a broken image
+    private boolean awaitCover(Row row) throws SQLException {
+        try {
+            row.imageUrl = row.cover.get();
+            covers++;
+            return true;
+        } catch (ExecutionException e) {
+            reject(row.label, "cover " + row.image.getName() + " could not be copied: " + e.getCause().getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while copying covers", e);
+        }
+    }
+
+    private void upsertOneByOne(Connection connection, List<Row> rows) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_BOOK_SQL)) {
+            for (Row row : rows) {
+                try {
+                    bind(preparedStatement, row);
+                    preparedStatement.executeUpdate();
+                    upserted++;
+                } catch (SQLException e) {
+                    reject(row.label, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement preparedStatement, Row row) throws SQLException {
+        preparedStatement.setString(1, row.isbn);
+        preparedStatement.setString(2, row.title);
+        preparedStatement.setString(3, row.author);
+        preparedStatement.setString(4, row.category);
+        preparedStatement.setInt(5, row.supplierId);
+        preparedStatement.setString(6, row.description);
+        preparedStatement.setString(7, row.imageUrl);
+        preparedStatement.setDouble(8, row.originalPrice);
+        preparedStatement.setDouble(9, row.sellingPrice);
+        preparedStatement.setInt(10, row.quantity);
+    }
+
+    public List<String> getRejected() {
+        return rejected;
+    }
+
+    public int getUpsertedCount() {
+        return upserted;
+    }
+
+    public double getRowsPerSecond() {
+        return nanos == 0 ? 0 : rows / (nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogIngest{" +
+                "rows=" + rows +
+                ", upserted=" + upserted +
+                ", covers=" + covers +
+                ", rejected=" + rejected.size() +
+                ", chunkSize=" + chunkSize +
+                ", ms=" + String.format("%.2f", nanos / 1_000_000.0) +
+                ", rowsPerSec=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+
+    private static class Row {
+        private final String label;
+        private String isbn;
+        private String title;
+        private String author;
+        private String category;
+        private String description;
+        private double originalPrice;
+        private double sellingPrice;
+        private int quantity;
+        private Supplier supplier;
+        private int supplierId;
+        private File image;
+        private Future<String> cover;
+        private String imageUrl;
+
+        Row(String label) {
+            this.label = label;
+        }
+    }
+
+    //Yields one manifest row at a time as column -> trimmed value, or null at the end of the file
+    private interface RecordReader {
+        Map<String, String> next() throws IOException;
+
+        //Where the last row came from, for rejection messages
+        String label();
+
+        //Why the last row can't be used although it was read to its end, or null
+        default String problem() {
+            return null;
+        }
+    }
+
+    private static class CsvRecords implements RecordReader {
+        private final BufferedReader reader;
+        private List<String> header;
+        private int lineNumber;
+
+        CsvRecords(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> fields = UserRoster.parseCsvLine(line);
+                if (header == null) {
+                    header = new ArrayList<>(fields.size());
+                    for (String field : fields) {
+                        header.add(field.trim());
+                    }
+                    continue;
+                }
+                Map<String, String> record = new HashMap<>();
+                for (int i = 0; i < fields.size() && i < header.size(); i++) {
+                    record.put(header.get(i), fields.get(i).trim());
+                }
+                return record;
+            }
+            return null;
+        }
+
+        @Override
+        public String label() {
+            return "Line " + lineNumber;
+        }
+    }
+
+    //Reads flat objects one by one, so neither an array of thousands of books nor a JSON-lines file is held in memory.
+    //Nested objects and arrays aren't part of the manifest format and are rejected as malformed.
+    private static class JsonRecords implements RecordReader {
+        private final BufferedReader reader;
+        private int recordNumber;
+        private int peeked = -2;
+        private String problem;
+
+        JsonRecords(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            int c = skipWhitespace();
+            while (c == '[' || c == ',') {
+                c = skipWhitespace();
+            }
+            if (c == ']' || c == -1) {
+                return null;
+            }
+            if (c != '{') {
+                throw malformed("expected an object");
+            }
+            recordNumber++;
+            problem = null;
+            Map<String, String> record = new HashMap<>();
+            c = skipWhitespace();
+            while (c != '}') {
+                if (c != '"') {
+                    throw malformed("expected a key");
+                }
+                String key = readString();
+                if (skipWhitespace() != ':') {
+                    throw malformed("expected ':' after " + key);
+                }
+                String value = readValue();
+                if (value != null) {
+                    record.put(key, value.trim());
+                }
+                c = skipWhitespace();
+                if (c == ',') {
+                    c = skipWhitespace();
+                } else if (c != '}') {
+                    throw malformed("expected ',' or '}'");
+                }
+            }
+            return record;
+        }
+
+        private String readValue() throws IOException {
+            int c = skipWhitespace();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw malformed("nested values are not supported");
+            }
+            StringBuilder literal = new StringBuilder();
+            while (c != -1 && c != ',' && c != '}' && !Character.isWhitespace(c)) {
+                literal.append((char) c);
+                c = read();
+            }
+            peeked = c;
+            return literal.toString().equals("null") ? null : literal.toString();
+        }
+
+        private String readString() throws IOException {
+            StringBuilder value = new StringBuilder();
+            int c;
+            while ((c = read()) != '"') {
+                if (c == -1) {
+                    throw malformed("unterminated string");
+                }
+                if (c == '\\') {
+                    c = read();
+                    switch (c) {
+                        case 'n' -> value.append('\n');
+                        case 't' -> value.append('\t');
+                        case 'r' -> value.append('\r');
+                        case 'b' -> value.append('\b');
+                        case 'f' -> value.append('\f');
+                        case 'u' -> {
+                            int code = 0;
+                            int digits = 0;
+                            int h = 0;
+                            while (digits < 4 && Character.digit(h = read(), 16) >= 0) {
+                                code = code * 16 + Character.digit(h, 16);
+                                digits++;
+                            }
+                            if (digits < 4) {
+                                //The rest of the record is still read so the next one starts in the right place
+                                peeked = h;
+                                problem = "invalid \\u escape in a string";
+                            } else {
+                                value.append((char) code);
+                            }
+                        }
+                        default -> value.append((char) c);
+                    }
+                } else {
+                    value.append((char) c);
+                }
+            }
+            return value.toString();
+        }
+
+        private int skipWhitespace() throws IOException {
+            int c = read();
+            while (c != -1 && Character.isWhitespace(c)) {
+                c = read();
+            }
+            return c;
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private IOException malformed(String reason) {
+            return new IOException("Malformed manifest at record " + (recordNumber + 1) + ": " + reason);
+        }
+
+        @Override
+        public String label() {
+            return "Record " + recordNumber;
+        }
+
+        @Override
+        public String problem() {
+            return problem;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 1) {
+            System.out.println("Usage: CatalogIngest <manifest.csv|manifest.json> [imageFolder] [chunkSize]");
+            return;
+        }
+        Path manifest = Paths.get(args[0]);
+        Path imageFolder = args.length > 1 ? Paths.get(args[1]) : manifest.toAbsolutePath().getParent();
+        CatalogIngest ingest = new CatalogIngest(imageFolder, args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CHUNK_SIZE);
+        try {
+            ingest.ingest(manifest);
+        } finally {
+            ConnectionPool.shutdownPool();
+        }
+        for (String reason : ingest.getRejected()) {
+            System.out.println(reason);
+        }
+        System.out.println(ingest);
+        System.out.println(SupplierRepository.getInstance());
+    }
+}
@@ -0,0 +1,195 @@
+package application.bookstore.controllers;
+
+import application.bookstore.Exceptions.InsufficientStockException;
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.models.SaleLine;
+import application.bookstore.models.User;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Writes a whole sale in one connection and one transaction: the Bill header, every SoldBookType
+//line, every stock decrement and the sale's entry for the rollups either all land in the database or
+//none of them do. The rollup totals themselves are updated after the commit by SalesRollups.
+//Stock is reserved on the server with a relative, conditional update so concurrent tills can't
+//overwrite each other's decrements or sell copies that are no longer on the shelf.
+public class CheckoutController implements DatabaseConnector {
+    private static final String INSERT_BILL_SQL = "INSERT INTO Bill (date, username, total_amount) VALUES (?, ?, ?)";
+    private static final String INSERT_SOLD_SQL = "INSERT INTO SoldBookType (ISBN, amount, soldQuantity, orderId) VALUES (?, ?, ?, ?)";
+    private static final String RESERVE_STOCK_SQL = "UPDATE book SET quantity = quantity - ? WHERE ISBN = ? AND quantity >= ?";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final AtomicLong checkoutCount = new AtomicLong();
+    private static final AtomicLong failedCount = new AtomicLong();
+    private static final AtomicLong conflictCount = new AtomicLong();
+    private static final AtomicLong retryCount = new AtomicLong();
+    private static final AtomicLong totalNanos = new AtomicLong();
+    private static volatile long lastNanos;
+
+    //Returns the orderId of the new Bill. If any line no longer has enough stock nothing is written and an
+    //InsufficientStockException reports what is left; other failures are rolled back and rethrown.
+    //Deadlocks and lock wait timeouts between tills are retried a few times before giving up.
+    public static int checkout(List<SaleLine> selectedBooks, double amount, User user) throws SQLException, InsufficientStockException {
+        return checkout(selectedBooks, amount, user, LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    //issued is stored as the Bill's date, so the caller can print the same date on the receipt
+    public static int checkout(List<SaleLine> selectedBooks, double amount, User user, LocalDateTime issued) throws SQLException, InsufficientStockException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return checkoutOnce(selectedBooks, amount, user, issued);
+            } catch (SQLException e) {
+                if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) {
+                    throw e;
+                }
+                retryCount.incrementAndGet();
+                System.out.println("Checkout attempt " + attempt + " hit a lock conflict, retrying: " + e.getMessage());
+            }
+        }
+    }
+
+    private static int checkoutOnce(List<SaleLine> selectedBooks, double amount, User user, LocalDateTime issued) throws SQLException, InsufficientStockException {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionPool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                //Reserve first so a sold-out line fails before anything else is written
+                List<SaleLine> shortLines = reserveStock(connection, selectedBooks);
+                if (!shortLines.isEmpty()) {
+                    connection.rollback();
+                    conflictCount.incrementAndGet();
+                    throw insufficientStock(connection, shortLines);
+                }
+                int orderId = insertBill(connection, amount, user, issued);
+                insertSoldLines(connection, selectedBooks, orderId);
+                SalesRollups.recordSale(connection, orderId);
+                connection.commit();
+                SalesRollups.applyPendingAsync();
+
+                long elapsed = System.nanoTime() - start;
+                lastNanos = elapsed;
+                totalNanos.addAndGet(elapsed);
+                checkoutCount.incrementAndGet();
+                System.out.println("Checkout " + orderId + ": " + selectedBooks.size() + " lines in "
+                        + String.format("%.2f", elapsed / 1_000_000.0) + "ms");
+                return orderId;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                failedCount.incrementAndGet();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    //Decrements stock for every line in one batch and returns the lines whose update matched no row,
+    //i.e. where the shelf no longer holds the chosen quantity. Must run inside the caller's transaction.
+    //Rows are locked in ISBN order so two tills selling the same titles can't deadlock each other.
+    public static List<SaleLine> reserveStock(Connection connection, List<SaleLine> selectedBooks) throws SQLException {
+        List<SaleLine> ordered = new ArrayList<>(selectedBooks);
+        ordered.sort(Comparator.comparing(SaleLine::getISBN));
+        List<SaleLine> shortLines = new ArrayList<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(RESERVE_STOCK_SQL)) {
+            for (SaleLine line : ordered) {
+                preparedStatement.setInt(1, line.getQuantity());
+                preparedStatement.setString(2, line.getISBN());
+                preparedStatement.setInt(3, line.getQuantity());
+                preparedStatement.addBatch();
+            }
+            int[] updateCounts = preparedStatement.executeBatch();
+            for (int i = 0; i < updateCounts.length; i++) {
+                if (updateCounts[i] == 0 || updateCounts[i] == Statement.EXECUTE_FAILED) {
+                    shortLines.add(ordered.get(i));
+                }
+            }
+        }
+        return shortLines;
+    }
+
+    private static InsufficientStockException insufficientStock(Connection connection, List<SaleLine> shortLines) throws SQLException {
+        Map<String, Integer> available = new LinkedHashMap<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement("SELECT quantity FROM book WHERE ISBN = ?")) {
+            for (SaleLine line : shortLines) {
+                preparedStatement.setString(1, line.getISBN());
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    available.put(line.getISBN(), resultSet.next() ? resultSet.getInt("quantity") : 0);
+                }
+            }
+        }
+        StringBuilder message = new StringBuilder("Not enough stock for:\n");
+        for (SaleLine line : shortLines) {
+            message.append("- ").append(line.getTitle())
+                    .append(" (chosen ").append(line.getQuantity())
+                    .append(", available ").append(available.get(line.getISBN())).append(")\n");
+        }
+        return new InsufficientStockException(message.toString(), available);
+    }
+
+    //MySQL reports deadlocks as SQLState 40001 (error 1213) and lock wait timeouts as error 1205
+    private static boolean isRetryable(SQLException e) {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1213 || e.getErrorCode() == 1205;
+    }
+
+    private static int insertBill(Connection connection, double amount, User user, LocalDateTime issued) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_BILL_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            preparedStatement.setObject(1, issued);
+            preparedStatement.setString(2, user.getUsername());
+            preparedStatement.setDouble(3, amount);
+            preparedStatement.executeUpdate();
+
+            try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getInt(1);
+                }
+                throw new SQLException("Failed to retrieve auto-generated keys.");
+            }
+        }
+    }
+
+    private static void insertSoldLines(Connection connection, List<SaleLine> selectedBooks, int orderId) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SOLD_SQL)) {
+            for (SaleLine line : selectedBooks) {
+                preparedStatement.setString(1, line.getISBN());
+                preparedStatement.setDouble(2, (line.getSellingPrice() - line.getOriginalPrice()));
+                preparedStatement.setInt(3, line.getQuantity());
+                preparedStatement.setInt(4, orderId);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    public static long getCheckoutCount() {
+        return checkoutCount.get();
+    }
+
+    public static long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public static long getConflictCount() {
+        return conflictCount.get();
+    }
+
+    public static long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public static double getLastLatencyMillis() {
+        return lastNanos / 1_000_000.0;
+    }
+
+    public static double getAverageLatencyMillis() {
+        long count = checkoutCount.get();
+        return count == 0 ? 0 : totalNanos.get() / 1_000_000.0 / count;
+    }
+}
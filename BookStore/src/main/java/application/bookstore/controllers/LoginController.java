@@ -1,16 +1,18 @@
 package application.bookstore.controllers;
 
 import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
 import application.bookstore.models.User;
 import application.bookstore.views.LoginView;
-import javafx.beans.property.SimpleStringProperty;
+import javafx.concurrent.Task;
+import javafx.geometry.HPos;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.input.KeyCode;
+import javafx.scene.layout.GridPane;
 import javafx.stage.Stage;
 
-import java.sql.*;
-
 public class LoginController implements DatabaseConnector {
     private final Stage primaryStage;
     private User user;
@@ -43,69 +45,50 @@ public class LoginController implements DatabaseConnector {
                 return;
             }
 
-            try {
-                Class.forName("com.mysql.cj.jdbc.Driver");
-            } catch (ClassNotFoundException exe) {
+            //The lookup and the password hash check run on the data-access pool so they don't freeze the login window
+            view.getBtn().setDisable(true);
+            Task<User> login = DataAccess.submit(() -> AuthService.getInstance().authenticate(username1, password1), found -> {
+                view.getBtn().setDisable(false);
+                if (found == null) {
+                    Alerts.showAlert(Alert.AlertType.ERROR, "Incorrect username or password",
+                            "Please enter the correct username and password");
+                    return;
+                }
+                user = found;
+                if (user.getRoleString().equalsIgnoreCase("admin")) {
+                    Alerts.infoBox("Login Successful!", null, "Success");
+                    application.bookstore.views.AdminView adminView = new application.bookstore.views.AdminView(user);
+                    try {
+                        primaryStage.setScene(adminView.showView(primaryStage));
+                    } catch (Exception exception) {
+                        System.out.println("Error in adminView");
+                        exception.printStackTrace();
+                    }
+                } else {
+                    Alerts.infoBox("Login Successful!", null, "Success");
+                    application.bookstore.views.BookView bookView = new application.bookstore.views.BookView(user.getRole() , user );
+                    try {
+                        primaryStage.setScene(bookView.showView(primaryStage));
+                    } catch (Exception exception) {
+                        System.out.println("Error in bookView");
+                        exception.printStackTrace();
+                    }
+                }
+            }, error -> {
+                view.getBtn().setDisable(false);
+                System.out.println("Did not sign in to DB");
                 Alert alert = new Alert(Alert.AlertType.WARNING);
                 alert.setContentText("Error connecting to Database!");
                 alert.showAndWait();
-            }
-
-            String query = "SELECT * FROM user WHERE username = ? AND password = ?";
-            //? is a placeholder
-
-            try {
-                Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-
-                PreparedStatement preparedStatement = connection.prepareStatement(query);
-                //Binding parameters
-                preparedStatement.setString(1, username1);
-                preparedStatement.setString(2, password1);
-                ResultSet resultSet = preparedStatement.executeQuery();
-
-                //We expect only 1 row or 0 so if() is used instead of while
-                if (resultSet.next()) {
-                    String username = resultSet.getString("username");
-                    String password = resultSet.getString("password");
-                    if (username1.equals(username) && password1.equals(password)) {
-                        String role = resultSet.getString("Role").toLowerCase();
-                        user = new User(
-                                new SimpleStringProperty(resultSet.getString("firstName")),
-                                new SimpleStringProperty(resultSet.getString("lastName")),
-                                new SimpleStringProperty(resultSet.getString("email")),
-                                new SimpleStringProperty(username),
-                                new SimpleStringProperty(password),
-                                new SimpleStringProperty(resultSet.getString("gender")),
-                                new SimpleStringProperty(resultSet.getString("Role"))
-                        );
-                        if (user.getRoleString().equalsIgnoreCase("admin")) {
-                            Alerts.infoBox("Login Successful!", null, "Success");
-                            application.bookstore.views.AdminView adminView = new application.bookstore.views.AdminView(user);
-                            try {
-                                primaryStage.setScene(adminView.showView(primaryStage));
-                            } catch (Exception exception) {
-                                System.out.println("Error in adminView");
-                                exception.printStackTrace();
-                            }
-                        } else {
-                            Alerts.infoBox("Login Successful!", null, "Success");
-                            application.bookstore.views.BookView bookView = new application.bookstore.views.BookView(user.getRole() , user );
-                            try {
-                                primaryStage.setScene(bookView.showView(primaryStage));
-                            } catch (Exception exception) {
-                                System.out.println("Error in bookView");
-                                exception.printStackTrace();
-                            }
-                        }
-                    } else {
-                        Alerts.showAlert(Alert.AlertType.ERROR, "Incorrect username or password",
-                                "Please enter the correct username and password");
-                    }
+            });
+            ProgressIndicator busy = DataAccess.busyIndicator(login);
+            GridPane.setHalignment(busy, HPos.CENTER);
+            view.getMainPane().add(busy, 0, 8, 2, 1);
+            login.runningProperty().addListener((observable, wasRunning, isRunning) -> {
+                if (!isRunning) {
+                    view.getMainPane().getChildren().remove(busy);
                 }
-            } catch (SQLException ex) {
-                System.out.println("Did not sign in to DB");
-                ex.printStackTrace();
-            }
+            });
         });
     }
 }
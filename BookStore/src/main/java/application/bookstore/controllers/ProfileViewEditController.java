@@ -1,7 +1,9 @@
 package application.bookstore.controllers;
 
 import application.bookstore.Exceptions.*;
+import application.bookstore.auxiliaries.ConnectionPool;
 import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.auxiliaries.PasswordHasher;
 import application.bookstore.models.User;
 
 import java.sql.*;
@@ -10,7 +12,7 @@ public class ProfileViewEditController implements DatabaseConnector {
     public static final int accessCode = 1234;
 
     public static void changeName(String new_value , User user){
-        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+        try (Connection connection = ConnectionPool.getConnection()) {
             String updateQuery = "UPDATE User SET firstName = ? WHERE email = ? and password = ?";
             try (PreparedStatement preparedStatement = connection.prepareStatement(updateQuery)) {
                 preparedStatement.setString(1, new_value);
@@ -20,6 +22,7 @@ public class ProfileViewEditController implements DatabaseConnector {
                 int rowsAffected = preparedStatement.executeUpdate();
                 if (rowsAffected > 0) {
                     System.out.println("First name updated successfully");
+                    AuthService.getInstance().invalidate(user.getUsername());
                     user.setFirstName(new_value);
                 } else {
                     System.out.println("Name: User not found or no updates performed");
@@ -31,7 +34,7 @@ public class ProfileViewEditController implements DatabaseConnector {
     }
 
     public static void changeSurname(String new_value , User user){
-        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+        try (Connection connection = ConnectionPool.getConnection()) {
             String updateQuery = "UPDATE User SET lastName = ? WHERE email = ? and password = ?";
             try (PreparedStatement preparedStatement = connection.prepareStatement(updateQuery)) {
                 preparedStatement.setString(1, new_value);
@@ -41,6 +44,7 @@ public class ProfileViewEditController implements DatabaseConnector {
                 int rowsAffected = preparedStatement.executeUpdate();
                 if (rowsAffected > 0) {
                     System.out.println("Last name updated successfully");
+                    AuthService.getInstance().invalidate(user.getUsername());
                     user.setLastName(new_value);
                 } else {
                     System.out.println("Last Name: User not found or no updates performed");
@@ -53,7 +57,7 @@ public class ProfileViewEditController implements DatabaseConnector {
 
 
     public static void changeUsername(String new_value, User user) {
-        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+        try (Connection connection = ConnectionPool.getConnection()) {
             // Check if the new username already exists for any user except the current user
             String checkQuery = "SELECT COUNT(*) FROM User WHERE userName = ? AND (email != ? OR password != ?)";
             try (PreparedStatement checkStatement = connection.prepareStatement(checkQuery)) {
@@ -78,6 +82,7 @@ public class ProfileViewEditController implements DatabaseConnector {
                         int rowsAffected = preparedStatement.executeUpdate();
                         if (rowsAffected > 0) {
                             System.out.println("Username updated successfully");
+                            AuthService.getInstance().invalidate(user.getUsername());
                             user.setUsername(new_value);
                         } else {
                             System.out.println("Username: User not found or no updates performed");
@@ -92,7 +97,7 @@ public class ProfileViewEditController implements DatabaseConnector {
 
 
     public static void changeEmail(String new_value, User user) {
-        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+        try (Connection connection = ConnectionPool.getConnection()) {
             // Check if the new email already exists for any user except the current user
             String checkQuery = "SELECT COUNT(*) FROM User WHERE email = ? AND (firstName != ? OR lastName != ? OR password != ?)";
             try (PreparedStatement checkStatement = connection.prepareStatement(checkQuery)) {
@@ -119,7 +124,8 @@ public class ProfileViewEditController implements DatabaseConnector {
                         int rowsAffected = preparedStatement.executeUpdate();
                         if (rowsAffected > 0) {
                             System.out.println("Email updated successfully");
-                            user.setEmail(new_value);
+                            AuthService.getInstance().invalidate(user.getUsername());
+                    user.setEmail(new_value);
                         } else {
                             System.out.println("Email: User not found or no updates performed");
                         }
@@ -133,7 +139,7 @@ public class ProfileViewEditController implements DatabaseConnector {
 
 
     public static void changeGender(String new_value , User user){
-            try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+            try (Connection connection = ConnectionPool.getConnection()) {
                 String updateQuery = "UPDATE User SET gender = ? WHERE email = ? and password = ?";
                 try (PreparedStatement preparedStatement = connection.prepareStatement(updateQuery)) {
                     preparedStatement.setString(1, new_value);
@@ -143,6 +149,7 @@ public class ProfileViewEditController implements DatabaseConnector {
                     int rowsAffected = preparedStatement.executeUpdate();
                     if (rowsAffected > 0) {
                         System.out.println("Gender updated successfully");
+                        AuthService.getInstance().invalidate(user.getUsername());
                         user.setGender(new_value);
                     } else {
                         System.out.println("Gender: User not found or no updates performed");
@@ -153,41 +160,25 @@ public class ProfileViewEditController implements DatabaseConnector {
             }
     }
 
+    //Stores a new salted hash of the password. Call it off the FX thread, hashing is slow on purpose.
     public static void changePassword(String new_value, User user){
-        try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
-            // Check if the new password already exists for any user except the current user
-            String checkQuery = "SELECT COUNT(*) FROM User WHERE password = ? AND (email != ? OR (firstName != ? AND lastName != ?))";
-            try (PreparedStatement checkStatement = connection.prepareStatement(checkQuery)) {
-                checkStatement.setString(1, new_value);
-                checkStatement.setString(2, user.getEmail());
-                checkStatement.setString(3, user.getFirstName());
-                checkStatement.setString(4, user.getLastName());
-
-                ResultSet resultSet = checkStatement.executeQuery();
-                resultSet.next();
-                int count = resultSet.getInt(1);
-
-                if (count > 0) {
-                    throw new PasswordAlreadyExistsException();
+        String hash = PasswordHasher.hash(new_value);
+        try (Connection connection = ConnectionPool.getConnection()) {
+            String updateQuery = "UPDATE User SET password = ? WHERE username = ? AND password = ?";
+            try (PreparedStatement preparedStatement = connection.prepareStatement(updateQuery)) {
+                preparedStatement.setString(1, hash);
+                preparedStatement.setString(2, user.getUsername());
+                preparedStatement.setString(3, user.getPassword());
+                int rowsAffected = preparedStatement.executeUpdate();
+                if (rowsAffected > 0) {
+                    System.out.println("Password updated successfully");
+                    AuthService.getInstance().invalidate(user.getUsername());
+                    user.setPassword(hash);
                 } else {
-                    // Update password if it doesn't exist for any other user
-                    String updateQuery = "UPDATE User SET password = ? WHERE firstName = ? AND lastName = ? AND email = ?";
-                    try (PreparedStatement preparedStatement = connection.prepareStatement(updateQuery)) {
-                        preparedStatement.setString(1, new_value);
-                        preparedStatement.setString(2, user.getFirstName());
-                        preparedStatement.setString(3, user.getLastName());
-                        preparedStatement.setString(4, user.getEmail());
-                        int rowsAffected = preparedStatement.executeUpdate();
-                        if (rowsAffected > 0) {
-                            System.out.println("Password updated successfully");
-                            user.setPassword(new_value);
-                        } else {
-                            System.out.println("Password: User not found or no updates performed");
-                        }
-                    }
+                    System.out.println("Password: User not found or no updates performed");
                 }
             }
-        } catch (SQLException | PasswordAlreadyExistsException e) {
+        } catch (SQLException e) {
             e.printStackTrace();
         }
     }
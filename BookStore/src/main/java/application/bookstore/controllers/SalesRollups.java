@@ -0,0 +1,191 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DatabaseConnector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Maintains the sales_by_book, sales_by_day, sales_by_supplier and sales_by_user totals
+//(Database/sales_rollups.sql), so the charts read a handful of pre-summed rows no matter how many
+//SoldBookType lines exist. A checkout only records its orderId in sales_rollup_pending
+//(Database/sales_rollup_outbox.sql) inside its transaction; after the commit a single background thread
+//folds pending orders into the totals, so tills don't wait on each other for the shared day and user rows.
+//Run main() once to backfill the totals from the existing history.
+public class SalesRollups implements DatabaseConnector {
+    private static final String[] RECORD_SALE_SQL = {
+            "INSERT INTO sales_by_book (ISBN, units, profit) " +
+                    "SELECT ISBN, SUM(soldQuantity), SUM(amount * soldQuantity) FROM SoldBookType " +
+                    "WHERE orderId = ? GROUP BY ISBN ORDER BY ISBN " +
+                    "ON DUPLICATE KEY UPDATE units = units + VALUES(units), profit = profit + VALUES(profit)",
+            "INSERT INTO sales_by_supplier (SupplierId, units, profit) " +
+                    "SELECT b.supplier, SUM(s.soldQuantity), SUM(s.amount * s.soldQuantity) " +
+                    "FROM SoldBookType s JOIN Book b ON b.ISBN = s.ISBN " +
+                    "WHERE s.orderId = ? GROUP BY b.supplier ORDER BY b.supplier " +
+                    "ON DUPLICATE KEY UPDATE units = units + VALUES(units), profit = profit + VALUES(profit)",
+            "INSERT INTO sales_by_day (sale_date, bills, units, profit, revenue) " +
+                    "SELECT DATE(b.date), 1, SUM(s.soldQuantity), SUM(s.amount * s.soldQuantity), b.total_amount " +
+                    "FROM Bill b JOIN SoldBookType s ON s.orderId = b.orderId " +
+                    "WHERE b.orderId = ? GROUP BY b.orderId, b.date, b.total_amount " +
+                    "ON DUPLICATE KEY UPDATE bills = bills + 1, units = units + VALUES(units), " +
+                    "profit = profit + VALUES(profit), revenue = revenue + VALUES(revenue)",
+            "INSERT INTO sales_by_user (username, bills, units, revenue) " +
+                    "SELECT b.username, 1, SUM(s.soldQuantity), b.total_amount " +
+                    "FROM Bill b JOIN SoldBookType s ON s.orderId = b.orderId " +
+                    "WHERE b.orderId = ? GROUP BY b.orderId, b.username, b.total_amount " +
+                    "ON DUPLICATE KEY UPDATE bills = bills + 1, units = units + VALUES(units), " +
+                    "revenue = revenue + VALUES(revenue)"
+    };
+
+    private static final int APPLY_BATCH = 100;
+    //SKIP LOCKED lets the applier of another till take the next orders instead of waiting for these
+    private static final String CLAIM_PENDING_SQL =
+            "SELECT orderId FROM sales_rollup_pending ORDER BY orderId LIMIT " + APPLY_BATCH + " FOR UPDATE SKIP LOCKED";
+
+    private static final ExecutorService applier = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sales-rollups");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicBoolean applyQueued = new AtomicBoolean();
+
+    private static final String[] REBUILD_SQL = {
+            "DELETE FROM sales_rollup_pending",
+            "DELETE FROM sales_by_book",
+            "DELETE FROM sales_by_supplier",
+            "DELETE FROM sales_by_day",
+            "DELETE FROM sales_by_user",
+            "DELETE FROM supplier_book_count",
+            "INSERT INTO sales_by_book (ISBN, units, profit) " +
+                    "SELECT ISBN, SUM(soldQuantity), SUM(amount * soldQuantity) FROM SoldBookType GROUP BY ISBN",
+            "INSERT INTO sales_by_supplier (SupplierId, units, profit) " +
+                    "SELECT b.supplier, SUM(s.soldQuantity), SUM(s.amount * s.soldQuantity) " +
+                    "FROM SoldBookType s JOIN Book b ON b.ISBN = s.ISBN GROUP BY b.supplier",
+            //Bill totals and line totals are summed separately so a bill's amount isn't counted once per line
+            "INSERT INTO sales_by_day (sale_date, bills, revenue) " +
+                    "SELECT DATE(date), COUNT(*), SUM(total_amount) FROM Bill GROUP BY DATE(date)",
+            "INSERT INTO sales_by_day (sale_date, units, profit) " +
+                    "SELECT DATE(b.date), SUM(s.soldQuantity), SUM(s.amount * s.soldQuantity) " +
+                    "FROM SoldBookType s JOIN Bill b ON b.orderId = s.orderId GROUP BY DATE(b.date) " +
+                    "ON DUPLICATE KEY UPDATE units = VALUES(units), profit = VALUES(profit)",
+            "INSERT INTO sales_by_user (username, bills, revenue) " +
+                    "SELECT username, COUNT(*), SUM(total_amount) FROM Bill GROUP BY username",
+            "INSERT INTO sales_by_user (username, units) " +
+                    "SELECT b.username, SUM(s.soldQuantity) " +
+                    "FROM SoldBookType s JOIN Bill b ON b.orderId = s.orderId GROUP BY b.username " +
+                    "ON DUPLICATE KEY UPDATE units = VALUES(units)",
+            "INSERT INTO supplier_book_count (SupplierId, books) " +
+                    "SELECT SupplierId, COUNT(*) FROM supplies GROUP BY SupplierId"
+    };
+
+    //Marks the bill for the rollups. Must run inside the checkout transaction, so a committed sale is
+    //always either pending or counted; the hot total rows are only touched after the commit.
+    public static void recordSale(Connection connection, int orderId) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement("INSERT INTO sales_rollup_pending (orderId) VALUES (?)")) {
+            preparedStatement.setInt(1, orderId);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    //Asks the background thread to apply pending sales; calls made while a run is already queued share it
+    public static void applyPendingAsync() {
+        if (applyQueued.compareAndSet(false, true)) {
+            applier.execute(() -> {
+                applyQueued.set(false);
+                try {
+                    applyPending();
+                } catch (SQLException e) {
+                    //The orders stay pending and are picked up by the next run
+                    System.err.println("Error applying pending sales to the rollups: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    //Folds pending orders into the totals and removes them from sales_rollup_pending, a batch per transaction
+    public static int applyPending() throws SQLException {
+        int applied = 0;
+        try (Connection connection = ConnectionPool.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                while (true) {
+                    List<Integer> orderIds = new ArrayList<>();
+                    try (Statement statement = connection.createStatement();
+                         ResultSet resultSet = statement.executeQuery(CLAIM_PENDING_SQL)) {
+                        while (resultSet.next()) {
+                            orderIds.add(resultSet.getInt("orderId"));
+                        }
+                    }
+                    if (orderIds.isEmpty()) {
+                        connection.commit();
+                        return applied;
+                    }
+                    for (String sql : RECORD_SALE_SQL) {
+                        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                            for (int orderId : orderIds) {
+                                preparedStatement.setInt(1, orderId);
+                                preparedStatement.addBatch();
+                            }
+                            preparedStatement.executeBatch();
+                        }
+                    }
+                    try (PreparedStatement preparedStatement = connection.prepareStatement("DELETE FROM sales_rollup_pending WHERE orderId = ?")) {
+                        for (int orderId : orderIds) {
+                            preparedStatement.setInt(1, orderId);
+                            preparedStatement.addBatch();
+                        }
+                        preparedStatement.executeBatch();
+                    }
+                    connection.commit();
+                    applied += orderIds.size();
+                    if (orderIds.size() < APPLY_BATCH) {
+                        return applied;
+                    }
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    //Recomputes every rollup from Bill, SoldBookType and supplies in one transaction.
+    //Checkouts committed while this runs would be counted twice, so run it while the tills are closed.
+    public static void rebuild() throws SQLException {
+        try (Connection connection = ConnectionPool.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : REBUILD_SQL) {
+                    statement.executeUpdate(sql);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            rebuild();
+        } finally {
+            ConnectionPool.shutdownPool();
+        }
+        System.out.println("Sales rollups rebuilt in "
+                + String.format("%.2f", (System.nanoTime() - start) / 1_000_000_000.0) + "s");
+    }
+}
@@ -0,0 +1,172 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DatabaseConnector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Sales figures over a date range. Every query starts from Bill with "date >= from AND date < to" so MySQL
+//reads only that slice of bills through idx_bill_date (Database/sales_windows.sql) and their lines
+//through the SoldBookType.orderId key, instead of aggregating the whole sales history.
+//Revenue per book, category and supplier is units times the book's current selling price, since sale
+//lines only store the profit per unit; revenue per cashier and per bucket uses the billed totals.
+public class SalesStatistics implements DatabaseConnector {
+
+    public enum Bucket {
+        DAY("DATE(b.date)"),
+        WEEK("DATE(b.date) - INTERVAL WEEKDAY(b.date) DAY"),
+        MONTH("DATE(DATE_FORMAT(b.date, '%Y-%m-01'))");
+
+        private final String startOfBucket;
+
+        Bucket(String startOfBucket) {
+            this.startOfBucket = startOfBucket;
+        }
+    }
+
+    public enum Dimension {
+        BOOK("bk.name"),
+        CATEGORY("bk.category"),
+        SUPPLIER("COALESCE(sp.name, CONCAT('Supplier ', bk.supplier))"),
+        CASHIER("b.username");
+
+        private final String label;
+
+        Dimension(String label) {
+            this.label = label;
+        }
+    }
+
+    //Profit, units and revenue per book, category, supplier or cashier for bills dated in [from, to), by profit
+    public static List<SalesFigure> totals(Dimension dimension, LocalDate from, LocalDate to) throws SQLException {
+        Map<String, SalesFigure> figures = new LinkedHashMap<>();
+        if (dimension == Dimension.CASHIER) {
+            readLines("b.username", "", from, to, figures);
+            //Bill totals are summed on their own, joined to the lines a bill would be counted once per line
+            String sql = "SELECT b.username AS label, SUM(b.total_amount) AS revenue FROM Bill b " +
+                    "WHERE b.date >= ? AND b.date < ? GROUP BY label";
+            try (Connection connection = ConnectionPool.getConnection();
+                 PreparedStatement preparedStatement = prepareRange(connection, sql, from, to);
+                 ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    figure(figures, resultSet.getString("label")).revenue += resultSet.getDouble("revenue");
+                }
+            }
+        } else {
+            readLines(dimension.label, ", SUM(bk.selling_price * s.soldQuantity) AS revenue", from, to, figures);
+        }
+        List<SalesFigure> sorted = new ArrayList<>(figures.values());
+        sorted.sort((a, b) -> Double.compare(b.profit, a.profit));
+        return sorted;
+    }
+
+    //Totals per day, week (starting Monday) or month for bills dated in [from, to), in date order.
+    //Buckets without sales are included with zeros so the series has no gaps.
+    public static Map<LocalDate, SalesFigure> series(Bucket bucket, LocalDate from, LocalDate to) throws SQLException {
+        Map<String, SalesFigure> figures = new LinkedHashMap<>();
+        for (LocalDate start = startOfBucket(bucket, from); start.isBefore(to); start = next(bucket, start)) {
+            figure(figures, start.toString());
+        }
+        readLines(bucket.startOfBucket, "", from, to, figures);
+        //Same as for cashiers, the billed amounts come from Bill alone
+        String sql = "SELECT " + bucket.startOfBucket + " AS label, SUM(b.total_amount) AS revenue FROM Bill b " +
+                "WHERE b.date >= ? AND b.date < ? GROUP BY label";
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = prepareRange(connection, sql, from, to);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                figure(figures, resultSet.getString("label")).revenue += resultSet.getDouble("revenue");
+            }
+        }
+        Map<LocalDate, SalesFigure> series = new LinkedHashMap<>();
+        for (SalesFigure figure : figures.values()) {
+            series.put(LocalDate.parse(figure.label), figure);
+        }
+        return series;
+    }
+
+    //Profit and units (and revenue when revenueColumn is given) of the sale lines of bills in the range, grouped by label
+    private static void readLines(String label, String revenueColumn, LocalDate from, LocalDate to,
+                                  Map<String, SalesFigure> figures) throws SQLException {
+        String sql = "SELECT " + label + " AS label, SUM(s.amount * s.soldQuantity) AS profit, " +
+                "SUM(s.soldQuantity) AS units" + revenueColumn + " " +
+                "FROM Bill b JOIN SoldBookType s ON s.orderId = b.orderId " +
+                "JOIN Book bk ON bk.ISBN = s.ISBN " +
+                "LEFT JOIN Supplier sp ON sp.SupplierId = bk.supplier " +
+                "WHERE b.date >= ? AND b.date < ? GROUP BY label";
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = prepareRange(connection, sql, from, to);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                SalesFigure figure = figure(figures, resultSet.getString("label"));
+                figure.profit += resultSet.getDouble("profit");
+                figure.units += resultSet.getLong("units");
+                if (!revenueColumn.isEmpty()) {
+                    figure.revenue += resultSet.getDouble("revenue");
+                }
+            }
+        }
+    }
+
+    private static PreparedStatement prepareRange(Connection connection, String sql, LocalDate from, LocalDate to) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        preparedStatement.setObject(1, from);
+        preparedStatement.setObject(2, to);
+        return preparedStatement;
+    }
+
+    private static SalesFigure figure(Map<String, SalesFigure> figures, String label) {
+        return figures.computeIfAbsent(label, SalesFigure::new);
+    }
+
+    public static LocalDate startOfBucket(Bucket bucket, LocalDate date) {
+        return switch (bucket) {
+            case DAY -> date;
+            case WEEK -> date.minusDays(date.getDayOfWeek().getValue() - 1);
+            case MONTH -> date.withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDate next(Bucket bucket, LocalDate start) {
+        return switch (bucket) {
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    public static class SalesFigure {
+        private final String label;
+        private double profit;
+        private long units;
+        private double revenue;
+
+        SalesFigure(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public double getProfit() {
+            return profit;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+    }
+}
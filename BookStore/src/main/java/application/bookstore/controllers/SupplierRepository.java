@@ -0,0 +1,190 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.models.Supplier;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Finds or creates suppliers by email. Supplier ids never change, so every email -> id seen is kept in
+//memory and a known supplier costs no database work at all. An unknown one is created or found with a
+//single upsert that returns its id either way, relying on the unique index on Supplier.email
+//(Database/supplier_email.sql). resolveAll does the same for a whole shipment in a few statements per BATCH_SIZE.
+//An existing supplier's name, phone and address are left as they are, as before.
+public class SupplierRepository implements DatabaseConnector {
+    public static final int BATCH_SIZE = 500;
+    //LAST_INSERT_ID(SupplierId) makes the existing row's id the generated key when the email is already there
+    private static final String UPSERT_SQL = "INSERT INTO Supplier (name, email, phoneNumber, address) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE SupplierId = LAST_INSERT_ID(SupplierId)";
+    private static final String INSERT_IGNORE_SQL = "INSERT INTO Supplier (name, email, phoneNumber, address) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE SupplierId = SupplierId";
+
+    private static SupplierRepository instance;
+
+    //Keyed by lower-case email, since MySQL compares emails case-insensitively
+    private final Map<String, Integer> idsByEmail = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong upserts = new AtomicLong();
+
+    private SupplierRepository() {
+    }
+
+    public static synchronized SupplierRepository getInstance() {
+        if (instance == null) {
+            instance = new SupplierRepository();
+        }
+        return instance;
+    }
+
+    //Sets and returns the supplier's id, creating the supplier if its email is new
+    public int resolve(Supplier supplier) throws SQLException {
+        String key = key(supplier.getEmail());
+        Integer id = idsByEmail.get(key);
+        if (id != null) {
+            hits.incrementAndGet();
+            supplier.setSupplierId(id);
+            return id;
+        }
+        misses.incrementAndGet();
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bind(preparedStatement, supplier);
+            preparedStatement.executeUpdate();
+            upserts.incrementAndGet();
+            try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("Failed to retrieve SupplierId for " + supplier.getEmail());
+                }
+                id = generatedKeys.getInt(1);
+            }
+        }
+        idsByEmail.put(key, id);
+        supplier.setSupplierId(id);
+        return id;
+    }
+
+    //Resolves many suppliers at once, e.g. for a shipment: the unknown emails are looked up together, the ones
+    //still missing are inserted as one batch and read back. Returns lower-case email -> id and sets each supplier's id.
+    public Map<String, Integer> resolveAll(Collection<Supplier> suppliers) throws SQLException {
+        Map<String, Supplier> unknown = new LinkedHashMap<>();
+        for (Supplier supplier : suppliers) {
+            String key = key(supplier.getEmail());
+            if (idsByEmail.containsKey(key)) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                unknown.putIfAbsent(key, supplier);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            List<Supplier> pending = new ArrayList<>(unknown.values());
+            try (Connection connection = ConnectionPool.getConnection()) {
+                for (int from = 0; from < pending.size(); from += BATCH_SIZE) {
+                    List<Supplier> batch = pending.subList(from, Math.min(from + BATCH_SIZE, pending.size()));
+                    List<Supplier> missing = new ArrayList<>();
+                    Map<String, Integer> found = lookup(connection, batch);
+                    for (Supplier supplier : batch) {
+                        if (!found.containsKey(key(supplier.getEmail()))) {
+                            missing.add(supplier);
+                        }
+                    }
+                    if (!missing.isEmpty()) {
+                        insertAll(connection, missing);
+                        found.putAll(lookup(connection, missing));
+                    }
+                    idsByEmail.putAll(found);
+                }
+            }
+        }
+
+        Map<String, Integer> ids = new HashMap<>();
+        for (Supplier supplier : suppliers) {
+            String key = key(supplier.getEmail());
+            Integer id = idsByEmail.get(key);
+            if (id == null) {
+                throw new SQLException("Supplier " + supplier.getEmail() + " could not be resolved");
+            }
+            supplier.setSupplierId(id);
+            ids.put(key, id);
+        }
+        return ids;
+    }
+
+    private static Map<String, Integer> lookup(Connection connection, List<Supplier> suppliers) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(suppliers.size(), "?"));
+        Map<String, Integer> found = new HashMap<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "SELECT SupplierId, email FROM Supplier WHERE email IN (" + placeholders + ")")) {
+            for (int i = 0; i < suppliers.size(); i++) {
+                preparedStatement.setString(i + 1, suppliers.get(i).getEmail());
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    found.put(key(resultSet.getString("email")), resultSet.getInt("SupplierId"));
+                }
+            }
+        }
+        return found;
+    }
+
+    //A supplier added by another till in the meantime is left alone and picked up by the following lookup
+    private void insertAll(Connection connection, List<Supplier> suppliers) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_IGNORE_SQL)) {
+            for (Supplier supplier : suppliers) {
+                bind(preparedStatement, supplier);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            upserts.addAndGet(suppliers.size());
+        }
+    }
+
+    //For when suppliers were deleted or changed outside the application
+    public void invalidate() {
+        idsByEmail.clear();
+    }
+
+    private static void bind(PreparedStatement preparedStatement, Supplier supplier) throws SQLException {
+        preparedStatement.setString(1, supplier.getName());
+        preparedStatement.setString(2, supplier.getEmail());
+        preparedStatement.setString(3, supplier.getPhoneNumber());
+        preparedStatement.setString(4, supplier.getAddress());
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SupplierRepository{" +
+                "cached=" + idsByEmail.size() +
+                ", hits=" + hits.get() +
+                ", misses=" + misses.get() +
+                ", upserts=" + upserts.get() +
+                '}';
+    }
+}
@@ -0,0 +1,387 @@
+package application.bookstore.controllers;
+
+import application.bookstore.Exceptions.EmailAlreadyExistsException;
+import application.bookstore.Exceptions.UsernameAlreadyExistsException;
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.auxiliaries.PasswordHasher;
+import application.bookstore.models.Role;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+//Bulk CSV import and export of the user table for onboarding a whole staff roster.
+//Both directions stream: the import reads, validates and inserts chunkSize rows at a time, and the export
+//writes rows straight from a streaming result set, so neither holds the roster in memory.
+//Each chunk is checked against the database with one query for taken usernames and emails, then inserted
+//as one JDBC batch in one transaction. Rejected rows are reported with their line number and reason.
+//
+//Columns: firstName,lastName,email,username,password,gender,role
+//The export leaves the password column blank. On import a password may be plain text (hashed on import),
+//a complete pbkdf2 hash, or blank; blank rows get PasswordHasher.RESET_REQUIRED and cannot log in until
+//an admin sets a password on the Users screen.
+//
+//  java application.bookstore.controllers.UserRoster import|export <file.csv> [chunkSize]
+public class UserRoster implements DatabaseConnector {
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    public static final String HEADER = "firstName,lastName,email,username,password,gender,role";
+    private static final int COLUMNS = 7;
+    private static final int MAX_LENGTH = 30;
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO user (firstName, lastName, email, userName, password, gender, Role) VALUES (?,?,?,?,?,?,?)";
+    private static final Set<String> GENDERS = Set.of("male", "female", "other", "m", "f", "u");
+
+    private final int chunkSize;
+    private final List<String> rejected = new ArrayList<>();
+    //Every username and email seen in the file so far, to catch duplicates within the file itself
+    private final Set<String> seenUsernames = new HashSet<>();
+    private final Set<String> seenEmails = new HashSet<>();
+    private int rows;
+    private int imported;
+    private int resetRequired;
+    private int exported;
+    private long nanos;
+
+    public UserRoster() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public UserRoster(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void importCsv(Path file) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             Connection connection = ConnectionPool.getConnection()) {
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && line.trim().equalsIgnoreCase(HEADER))) {
+                    continue;
+                }
+                rows++;
+                Row row = validate(lineNumber, line);
+                if (row != null) {
+                    chunk.add(row);
+                }
+                if (chunk.size() == chunkSize) {
+                    insertChunk(connection, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                insertChunk(connection, chunk);
+            }
+        } finally {
+            nanos += System.nanoTime() - start;
+            AuthService.getInstance().invalidateAll();
+        }
+    }
+
+    //Returns the parsed row, or null after recording why it was rejected
+    private Row validate(int lineNumber, String line) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() != COLUMNS) {
+            return reject(lineNumber, "expected " + COLUMNS + " columns, found " + fields.size());
+        }
+        for (int i = 0; i < COLUMNS; i++) {
+            fields.set(i, fields.get(i).trim());
+            if (fields.get(i).isEmpty() && i != 4) {
+                return reject(lineNumber, "empty " + HEADER.split(",")[i]);
+            }
+            if (i != 4 && fields.get(i).length() > MAX_LENGTH) {
+                return reject(lineNumber, HEADER.split(",")[i] + " is longer than " + MAX_LENGTH + " characters");
+            }
+        }
+        Row row = new Row(lineNumber, fields.toArray(new String[0]));
+        if (!(row.values[0].matches("[a-zA-Z ]{1,24}") && row.values[1].matches("[a-zA-Z ]{1,24}"))) {
+            return reject(lineNumber, "names can only include letters and spaces");
+        }
+        if (!row.values[2].matches("[^@\\s]+@[^@\\s]+\\.[^@\\s]+")) {
+            return reject(lineNumber, "invalid email " + row.values[2]);
+        }
+        if (PasswordHasher.isHashed(row.values[4])) {
+            if (!PasswordHasher.isWellFormed(row.values[4])) {
+                return reject(lineNumber, "the password is not a complete pbkdf2 hash");
+            }
+        } else if (!row.values[4].isEmpty() && !row.values[4].matches("^(?=.*[A-Za-z])(?=.*[\\d])[A-Za-z\\d]{8,}$")) {
+            return reject(lineNumber, "the password needs at least eight letters and numbers, with at least one of each");
+        }
+        if (!GENDERS.contains(row.values[5].toLowerCase(Locale.ROOT))) {
+            return reject(lineNumber, "unknown gender " + row.values[5]);
+        }
+        try {
+            Role.valueOf(row.values[6].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return reject(lineNumber, "unknown role " + row.values[6]);
+        }
+        row.values[6] = row.values[6].toLowerCase(Locale.ROOT);
+
+        //MySQL compares usernames and emails case-insensitively, so the file is checked the same way
+        if (!seenUsernames.add(row.values[3].toLowerCase(Locale.ROOT))) {
+            return reject(lineNumber, "username " + row.values[3] + " appears twice in the file");
+        }
+        if (!seenEmails.add(row.values[2].toLowerCase(Locale.ROOT))) {
+            seenUsernames.remove(row.values[3].toLowerCase(Locale.ROOT));
+            return reject(lineNumber, "email " + row.values[2] + " appears twice in the file");
+        }
+        return row;
+    }
+
+    private Row reject(int lineNumber, String reason) {
+        rejected.add("Line " + lineNumber + ": " + reason);
+        return null;
+    }
+
+    private void insertChunk(Connection connection, List<Row> chunk) throws SQLException {
+        List<Row> accepted = withoutConflicts(connection, chunk);
+        if (accepted.isEmpty()) {
+            return;
+        }
+        //Hashing is slow on purpose, so a chunk's passwords are hashed in parallel
+        accepted.parallelStream()
+                .filter(row -> !row.values[4].isEmpty() && !PasswordHasher.isHashed(row.values[4]))
+                .forEach(row -> row.values[4] = PasswordHasher.hash(row.values[4]));
+        for (Row row : accepted) {
+            if (row.values[4].isEmpty()) {
+                row.values[4] = PasswordHasher.RESET_REQUIRED;
+            }
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_USER_SQL)) {
+            for (Row row : accepted) {
+                for (int i = 0; i < COLUMNS; i++) {
+                    preparedStatement.setString(i + 1, row.values[i]);
+                }
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+            connection.commit();
+            imported += accepted.size();
+            resetRequired += countResets(accepted);
+        } catch (BatchUpdateException e) {
+            //Someone added one of these users since the conflict check; insert row by row to find it
+            connection.rollback();
+            connection.setAutoCommit(true);
+            insertOneByOne(connection, accepted);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    //One query for the whole chunk: which of its usernames and emails are already taken
+    private List<Row> withoutConflicts(Connection connection, List<Row> chunk) throws SQLException {
+        String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "SELECT username, email FROM user WHERE username IN (" + placeholders + ") OR email IN (" + placeholders + ")")) {
+            for (int i = 0; i < chunk.size(); i++) {
+                preparedStatement.setString(i + 1, chunk.get(i).values[3]);
+                preparedStatement.setString(chunk.size() + i + 1, chunk.get(i).values[2]);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    takenUsernames.add(resultSet.getString("username").toLowerCase(Locale.ROOT));
+                    takenEmails.add(resultSet.getString("email").toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (takenUsernames.contains(row.values[3].toLowerCase(Locale.ROOT))) {
+                reject(row.lineNumber, "username " + row.values[3] + " already exists");
+            } else if (takenEmails.contains(row.values[2].toLowerCase(Locale.ROOT))) {
+                reject(row.lineNumber, "email " + row.values[2] + " already exists");
+            } else {
+                accepted.add(row);
+            }
+        }
+        return accepted;
+    }
+
+    private void insertOneByOne(Connection connection, List<Row> rows) throws SQLException {
+        for (Row row : rows) {
+            try {
+                AddNewUserController.insertUser(connection, row.values);
+                imported++;
+                if (row.values[4].equals(PasswordHasher.RESET_REQUIRED)) {
+                    resetRequired++;
+                }
+            } catch (UsernameAlreadyExistsException | EmailAlreadyExistsException e) {
+                reject(row.lineNumber, e.getMessage());
+            }
+        }
+    }
+
+    private static int countResets(List<Row> rows) {
+        int count = 0;
+        for (Row row : rows) {
+            if (row.values[4].equals(PasswordHasher.RESET_REQUIRED)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //Streams the user table to CSV without building a User per row.
+    //Passwords are never exported, plain text or hashed; the column stays blank so the file re-imports.
+    public void exportCsv(Path file) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(
+                     "SELECT firstName, lastName, email, username, gender, Role FROM user ORDER BY username");
+             BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            //Tells MySQL Connector/J to stream rows instead of reading the whole result into memory
+            preparedStatement.setFetchSize(Integer.MIN_VALUE);
+            writer.write(HEADER);
+            writer.newLine();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    for (int i = 1; i <= COLUMNS - 1; i++) {
+                        if (i > 1) {
+                            writer.write(',');
+                        }
+                        writer.write(csvField(resultSet.getString(i)));
+                        if (i == 4) {
+                            //Blank password column
+                            writer.write(',');
+                        }
+                    }
+                    writer.newLine();
+                    exported++;
+                }
+            }
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    //Splits one line on commas outside double quotes; "" inside quotes is a literal quote
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>(COLUMNS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public List<String> getRejected() {
+        return rejected;
+    }
+
+    public int getImportedCount() {
+        return imported;
+    }
+
+    public int getResetRequiredCount() {
+        return resetRequired;
+    }
+
+    public int getExportedCount() {
+        return exported;
+    }
+
+    public double getRowsPerSecond() {
+        return nanos == 0 ? 0 : (rows + exported) / (nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "UserRoster{" +
+                "rows=" + rows +
+                ", imported=" + imported +
+                ", rejected=" + rejected.size() +
+                ", resetRequired=" + resetRequired +
+                ", exported=" + exported +
+                ", chunkSize=" + chunkSize +
+                ", ms=" + String.format("%.2f", nanos / 1_000_000.0) +
+                ", rowsPerSec=" + String.format("%.0f", getRowsPerSecond()) +
+                '}';
+    }
+
+    private static class Row {
+        private final int lineNumber;
+        //firstName, lastName, email, userName, password, gender, Role
+        private final String[] values;
+
+        Row(int lineNumber, String[] values) {
+            this.lineNumber = lineNumber;
+            this.values = values;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 2) {
+            System.out.println("Usage: UserRoster import|export <file.csv> [chunkSize]");
+            return;
+        }
+        UserRoster roster = new UserRoster(args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CHUNK_SIZE);
+        try {
+            if (args[0].equalsIgnoreCase("export")) {
+                roster.exportCsv(Paths.get(args[1]));
+            } else {
+                roster.importCsv(Paths.get(args[1]));
+            }
+        } finally {
+            ConnectionPool.shutdownPool();
+        }
+        for (String reason : roster.getRejected()) {
+            System.out.println(reason);
+        }
+        System.out.println(roster);
+    }
+}
@@ -0,0 +1,285 @@
+package application.bookstore.controllers;
+
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DataAccess;
+import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.models.User;
+import javafx.animation.PauseTransition;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.util.Duration;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Write-behind buffer for the inline edits of the users table. Edits to the same user are merged into
+//one UPDATE of just the changed columns, and pending updates are written together FLUSH_DELAY_MS after the
+//first unsaved edit, as soon as MAX_PENDING users are waiting, or when the table is left.
+//Updates that change the same set of columns share one prepared statement and go to the database as a batch.
+//All bookkeeping happens on the FX thread; only the JDBC work runs on the data-access pool, one flush at a time.
+//An update that fails puts the user's edited columns back to what they were before the unsaved edits.
+public class UserWriteBehind implements DatabaseConnector {
+    public static final long FLUSH_DELAY_MS = 2_000;
+    public static final int MAX_PENDING = 50;
+    private static final Set<String> COLUMNS = Set.of("firstName", "lastName", "email", "userName", "password", "gender", "Role");
+
+    //Changed columns per user, in edit order
+    private Map<User, Map<String, String>> pending = new IdentityHashMap<>();
+    //Value of each of those columns before its first unsaved edit, restored if the update fails
+    private Map<User, Map<String, String>> originals = new IdentityHashMap<>();
+    //The username each edited user has in the database, which changes only once a username edit is written
+    private final Map<User, String> savedUsernames = new IdentityHashMap<>();
+    private final PauseTransition timer = new PauseTransition(Duration.millis(FLUSH_DELAY_MS));
+    private final ReadOnlyIntegerWrapper pendingCount = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper failedCount = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyStringWrapper lastError = new ReadOnlyStringWrapper("");
+    private boolean flushing;
+    private boolean flushAgain;
+
+    private long written;
+    private long statements;
+    private long flushes;
+
+    public UserWriteBehind() {
+        timer.setOnFinished(e -> flush());
+    }
+
+    //oldValue is the column's value before this edit. savedUsername is the user's username before this edit;
+    //it is only used for a user with no unsaved edits.
+    public void edit(User user, String column, String oldValue, String value, String savedUsername) {
+        if (!COLUMNS.contains(column)) {
+            throw new IllegalArgumentException("Not a user column: " + column);
+        }
+        savedUsernames.putIfAbsent(user, savedUsername);
+        originals.computeIfAbsent(user, k -> new LinkedHashMap<>()).putIfAbsent(column, oldValue);
+        pending.computeIfAbsent(user, k -> new LinkedHashMap<>()).put(column, value);
+        pendingCount.set(pending.size());
+        if (pending.size() >= MAX_PENDING) {
+            flush();
+        } else if (timer.getStatus() != PauseTransition.Status.RUNNING) {
+            timer.playFromStart();
+        }
+    }
+
+    //The user's username in the database, which differs from getUsername() while a username edit is unsaved
+    public String savedUsername(User user) {
+        String saved = savedUsernames.get(user);
+        return saved != null ? saved : user.getUsername();
+    }
+
+    //Drops a user's unsaved edits, e.g. because the row was deleted, and returns its username in the database
+    public String discard(User user) {
+        String saved = savedUsername(user);
+        pending.remove(user);
+        originals.remove(user);
+        pendingCount.set(pending.size());
+        savedUsernames.remove(user);
+        return saved;
+    }
+
+    public void flush() {
+        timer.stop();
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (flushing) {
+            flushAgain = true;
+            return;
+        }
+        flushing = true;
+        List<Update> updates = takePending();
+        DataAccess.submit(() -> write(updates), this::written, error -> {
+            flushing = false;
+            for (Update update : updates) {
+                update.error = error.getMessage();
+            }
+            written(updates);
+        });
+    }
+
+    //Writes everything still pending on the calling thread, for when the window is closing and the pool is going away
+    public void flushNow() {
+        timer.stop();
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Update> updates = takePending();
+        try {
+            write(updates);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        written(updates);
+    }
+
+    private List<Update> takePending() {
+        List<Update> updates = new ArrayList<>();
+        for (Map.Entry<User, Map<String, String>> entry : pending.entrySet()) {
+            updates.add(new Update(entry.getKey(), savedUsernames.get(entry.getKey()), entry.getValue(),
+                    originals.getOrDefault(entry.getKey(), Map.of())));
+        }
+        pending = new IdentityHashMap<>();
+        originals = new IdentityHashMap<>();
+        pendingCount.set(0);
+        return updates;
+    }
+
+    //Runs on the data-access pool. Marks each update that didn't reach the database with the reason.
+    private List<Update> write(List<Update> updates) throws SQLException {
+        Map<String, List<Update>> bySql = new LinkedHashMap<>();
+        for (Update update : updates) {
+            bySql.computeIfAbsent(update.sql(), k -> new ArrayList<>()).add(update);
+        }
+        try (Connection connection = ConnectionPool.getConnection()) {
+            for (Map.Entry<String, List<Update>> group : bySql.entrySet()) {
+                List<Update> batch = group.getValue();
+                try (PreparedStatement preparedStatement = connection.prepareStatement(group.getKey())) {
+                    for (Update update : batch) {
+                        int index = 1;
+                        for (String value : update.columns.values()) {
+                            preparedStatement.setString(index++, value);
+                        }
+                        preparedStatement.setString(index, update.savedUsername);
+                        preparedStatement.addBatch();
+                    }
+                    int[] counts;
+                    try {
+                        counts = preparedStatement.executeBatch();
+                    } catch (BatchUpdateException e) {
+                        counts = e.getUpdateCounts();
+                        for (Update update : batch) {
+                            update.error = e.getMessage();
+                        }
+                    }
+                    for (int i = 0; i < batch.size() && i < counts.length; i++) {
+                        if (counts[i] == Statement.EXECUTE_FAILED) {
+                            continue;
+                        }
+                        batch.get(i).error = counts[i] == 0 ? "User " + batch.get(i).savedUsername + " no longer exists" : null;
+                    }
+                }
+                synchronized (this) {
+                    statements++;
+                }
+            }
+        }
+        return updates;
+    }
+
+    //Back on the FX thread: record the new usernames, invalidate the login cache and report failures
+    private void written(List<Update> updates) {
+        flushing = false;
+        int failed = 0;
+        for (Update update : updates) {
+            AuthService.getInstance().invalidate(update.savedUsername);
+            if (update.error != null) {
+                failed++;
+                lastError.set(update.error);
+                revert(update);
+                continue;
+            }
+            String newUsername = update.columns.get("userName");
+            if (newUsername != null) {
+                AuthService.getInstance().invalidate(newUsername);
+                if (savedUsernames.get(update.user) != null) {
+                    savedUsernames.put(update.user, newUsername);
+                }
+            }
+            if (!pending.containsKey(update.user)) {
+                savedUsernames.remove(update.user);
+            }
+        }
+        failedCount.set(failedCount.get() + failed);
+        synchronized (this) {
+            flushes++;
+            written += updates.size() - failed;
+        }
+        if (flushAgain) {
+            flushAgain = false;
+            flush();
+        }
+    }
+
+    //Columns edited again since this update was taken stay as edited, but will revert to the same
+    //pre-edit values if that later write fails too
+    private void revert(Update update) {
+        Map<String, String> newer = pending.get(update.user);
+        for (Map.Entry<String, String> column : update.originals.entrySet()) {
+            if (newer != null && newer.containsKey(column.getKey())) {
+                originals.computeIfAbsent(update.user, k -> new LinkedHashMap<>()).put(column.getKey(), column.getValue());
+                continue;
+            }
+            String value = column.getValue();
+            switch (column.getKey()) {
+                case "firstName" -> update.user.setFirstName(value);
+                case "lastName" -> update.user.setLastName(value);
+                case "email" -> update.user.setEmail(value);
+                case "userName" -> update.user.setUsername(value);
+                case "password" -> update.user.setPassword(value);
+                case "gender" -> update.user.setGender(value);
+                case "Role" -> update.user.setRole(value);
+            }
+        }
+    }
+
+    public ReadOnlyIntegerProperty pendingCountProperty() {
+        return pendingCount.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty failedCountProperty() {
+        return failedCount.getReadOnlyProperty();
+    }
+
+    public ReadOnlyStringProperty lastErrorProperty() {
+        return lastError.getReadOnlyProperty();
+    }
+
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "UserWriteBehind{" +
+                "pending=" + pending.size() +
+                ", written=" + written +
+                ", failed=" + failedCount.get() +
+                ", statements=" + statements +
+                ", flushes=" + flushes +
+                '}';
+    }
+
+    private static class Update {
+        private final User user;
+        private final String savedUsername;
+        private final Map<String, String> columns;
+        private final Map<String, String> originals;
+        private String error;
+
+        Update(User user, String savedUsername, Map<String, String> columns, Map<String, String> originals) {
+            this.user = user;
+            this.savedUsername = savedUsername;
+            this.columns = columns;
+            this.originals = originals;
+        }
+
+        String sql() {
+            List<String> assignments = new ArrayList<>();
+            for (String column : columns.keySet()) {
+                assignments.add(column + " = ?");
+            }
+            return "UPDATE user SET " + String.join(", ", assignments) + " WHERE userName = ?";
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package application.bookstore.controllers;
 
+import application.bookstore.Exceptions.EmailAlreadyExistsException;
+import application.bookstore.Exceptions.UsernameAlreadyExistsException;
+import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.auxiliaries.PasswordHasher;
 import application.bookstore.models.User;
 import application.bookstore.views.AddNewUserDialog;
 import application.bookstore.views.UsersTableView;
@@ -8,14 +14,15 @@ import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Optional;
@@ -33,6 +40,7 @@ public class UsersTableController implements DatabaseConnector {
     private TableColumn<User, String> roleColumn;
     private Button addButton;
     private Button removeButton;
+    private final UserWriteBehind writeBehind = new UserWriteBehind();
 
     public UsersTableController(UsersTableView view,ObservableList<User> currentUsers) {
 
@@ -51,6 +59,28 @@ public class UsersTableController implements DatabaseConnector {
         removeButton=view.getRemoveButton();
 
         Listener(view);
+        flushOnLeave(view);
+        view.showWriteStatus(writeBehind);
+    }
+
+    //Unsaved edits are written when the table's scene is replaced, and synchronously when its window closes
+    private void flushOnLeave(UsersTableView view) {
+        EventHandler<WindowEvent> onHiding = e -> writeBehind.flushNow();
+        view.sceneProperty().addListener((observable, oldScene, scene) -> {
+            if (scene == null) {
+                return;
+            }
+            scene.windowProperty().addListener((o, oldWindow, window) -> {
+                if (oldWindow != null) {
+                    oldWindow.removeEventHandler(WindowEvent.WINDOW_HIDING, onHiding);
+                }
+                if (window != null) {
+                    window.addEventHandler(WindowEvent.WINDOW_HIDING, onHiding);
+                } else {
+                    writeBehind.flush();
+                }
+            });
+        });
     }
 
     private void Listener(UsersTableView view)
@@ -60,7 +90,7 @@ public class UsersTableController implements DatabaseConnector {
             public void handle(TableColumn.CellEditEvent<User, String> event) {
                 User user = event.getRowValue();
                 user.setFirstName(event.getNewValue());
-                updateRowInDatabase(user,"firstName",user.getFirstName(),"userName", user.getUsername());
+                writeBehind.edit(user,"firstName",event.getOldValue(),user.getFirstName(), user.getUsername());
             }
         });
 
@@ -69,7 +99,7 @@ public class UsersTableController implements DatabaseConnector {
             public void handle(TableColumn.CellEditEvent<User, String> event) {
                 User user = event.getRowValue();
                 user.setLastName(event.getNewValue());
-                updateRowInDatabase(user,"lastName",user.getLastName(),"userName", user.getUsername());
+                writeBehind.edit(user,"lastName",event.getOldValue(),user.getLastName(), user.getUsername());
             }
         });
         emailColumn.setOnEditCommit(new EventHandler<TableColumn.CellEditEvent<User, String>>() {
@@ -77,7 +107,7 @@ public class UsersTableController implements DatabaseConnector {
             public void handle(TableColumn.CellEditEvent<User, String> event) {
                 User user = event.getRowValue();
                 user.setEmail(event.getNewValue());
-                updateRowInDatabase(user,"email",user.getEmail(),"userName", user.getUsername());
+                writeBehind.edit(user,"email",event.getOldValue(),user.getEmail(), user.getUsername());
 
             }
         });
@@ -87,8 +117,8 @@ public class UsersTableController implements DatabaseConnector {
             public void handle(TableColumn.CellEditEvent<User, String> event) {
                 User user = event.getRowValue();
                 user.setUsername(event.getNewValue());
-                updateRowInDatabase(user,"userName",user.getUsername(),"password", user.getPassword());
-                //only here we condtion with the password since we are changing the username
+                writeBehind.edit(user,"userName",event.getOldValue(),user.getUsername(), event.getOldValue());
+                //only here the username in the database is the old value since we are changing the username
             }
         });
 
@@ -96,8 +126,13 @@ public class UsersTableController implements DatabaseConnector {
             @Override
             public void handle(TableColumn.CellEditEvent<User, String> event) {
                 User user = event.getRowValue();
-                user.setPassword(event.getNewValue());
-                updateRowInDatabase(user,"password",user.getPassword(),"userName", user.getUsername());
+                String username = user.getUsername();
+                //Hashing is slow on purpose, so it runs on the data-access pool
+                DataAccess.submit(() -> PasswordHasher.hash(event.getNewValue()), hash -> {
+                    String oldHash = user.getPassword();
+                    user.setPassword(hash);
+                    writeBehind.edit(user,"password",oldHash,hash, username);
+                }, error -> error.printStackTrace());
             }
         });
         genderColumn.setOnEditCommit(new EventHandler<TableColumn.CellEditEvent<User, String>>() {
@@ -105,7 +140,7 @@ public class UsersTableController implements DatabaseConnector {
             public void handle(TableColumn.CellEditEvent<User, String> event) {
                 User user = event.getRowValue();
                 user.setGender(event.getNewValue());
-                updateRowInDatabase(user,"gender",user.getGender(),"userName", user.getUsername());
+                writeBehind.edit(user,"gender",event.getOldValue(),user.getGender(), user.getUsername());
             }
         });
         roleColumn.setOnEditCommit(new EventHandler<TableColumn.CellEditEvent<User, String>>() {
@@ -113,7 +148,7 @@ public class UsersTableController implements DatabaseConnector {
             public void handle(TableColumn.CellEditEvent<User, String> event) {
                 User user = event.getRowValue();
                 user.setRole(event.getNewValue());
-                updateRowInDatabase(user,"Role",user.getRoleString(),"userName",user.getUsername());
+                writeBehind.edit(user,"Role",event.getOldValue(),user.getRoleString(), user.getUsername());
             }
         });
 
@@ -147,38 +182,40 @@ public class UsersTableController implements DatabaseConnector {
 
             if (row >= 0 && row < tableView.getItems().size()) {
                 User u = tableView.getItems().get(row);
-
-                //Removing from database
-                String query = "DELETE FROM user where userName=?";
-                try {
-                    Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-                    PreparedStatement preparedStatement = connection.prepareStatement(query);
-                    preparedStatement.setString(1, u.getUsername());
-                    int rowsAffected = preparedStatement.executeUpdate();
-                } catch (SQLException ex) {
-                    System.out.println("Did not sign in to DB");
-                    ex.printStackTrace();
-                }
-
-                //removing from tableView and users
-                removeRow(row);
+                //An unsaved username change means the row still has its old name in the database
+                String username = writeBehind.savedUsername(u);
+
+                //Removing from database on the data-access pool; the row goes only once the delete matched it
+                removeButton.setDisable(true);
+                DataAccess.submit(() -> deleteUser(username), deleted -> {
+                    removeButton.setDisable(false);
+                    AuthService.getInstance().invalidate(username);
+                    if (deleted == 0) {
+                        Alerts.showAlert(Alert.AlertType.ERROR, "User not removed",
+                                "User " + username + " was not found in the database.");
+                        return;
+                    }
+                    //Unsaved edits of the row are dropped with it
+                    writeBehind.discard(u);
+                    tableView.getItems().remove(u);
+                }, ex -> {
+                    removeButton.setDisable(false);
+                    Alerts.showAlert(Alert.AlertType.ERROR, "User not removed",
+                            "User " + username + " could not be removed.\n" + ex.getMessage());
+                });
             }
         });
 }
 
-    private void updateRowInDatabase(User user,String columnName,String newValue,String conditionColumn,String conditionValue) {
-        String query = "UPDATE user SET "+ columnName+"=? where "+conditionColumn+"=?";//columName=newValue,condition=conditionValue
-        try {
-            Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
-            preparedStatement.setString(1,newValue);
-            preparedStatement.setString(2,conditionValue);
-            preparedStatement.executeUpdate();
-        } catch (SQLException ex) {
-            System.out.println("Did not sign in to DB");
-            ex.printStackTrace();
+    private static int deleteUser(String username) throws SQLException {
+        String query = "DELETE FROM user where userName=?";
+        try (Connection connection = ConnectionPool.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setString(1, username);
+            return preparedStatement.executeUpdate();
         }
     }
+
     public void add(User user) {
         //Adding user to the list
         users.add(user); //will also automatically be added to the tableView
@@ -188,27 +225,26 @@ public class UsersTableController implements DatabaseConnector {
             System.out.println(u);
         }
 
-        //adding user to database
-        String query="INSERT INTO user (firstName, lastName, email, userName, password, gender, Role) VALUES" +
-                "(?,?,?,?,?,?,?);";
-        try {
-            Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-            PreparedStatement preparedStatement = connection.prepareStatement(query);
-            preparedStatement.setString(1,user.getFirstName());
-            preparedStatement.setString(2,user.getLastName());
-            preparedStatement.setString(3,user.getEmail());
-            preparedStatement.setString(4,user.getPassword());
-            preparedStatement.setString(5,user.getUsername());;
-            preparedStatement.setString(6,user.getGender());
-            preparedStatement.setString(7,user.getRoleString());
-
-            preparedStatement.executeUpdate();
-        } catch (SQLException ex) {
+        //Only the salted hash of the password is stored. Hashing is slow on purpose,
+        //so the hash and the insert run on the data-access pool
+        String[] values = {user.getFirstName(), user.getLastName(), user.getEmail(), user.getUsername(),
+                user.getPassword(), user.getGender(), user.getRoleString()};
+        DataAccess.submit(() -> {
+            values[4] = PasswordHasher.hash(values[4]);
+            AddNewUserController.createUser(values);
+            return values[4];
+        }, user::setPassword, ex -> {
+            //Someone took the username or email after the dialog checked it
+            users.remove(user);
+            if (ex instanceof UsernameAlreadyExistsException || ex instanceof EmailAlreadyExistsException) {
+                Alerts.showAlert(Alert.AlertType.ERROR, "User not added", ex.getMessage());
+                return;
+            }
             System.out.println("Problem when adding user");
             ex.printStackTrace();
-        }
-
+        });
     }
+
     public void removeRow(int row)
     {
         tableView.getItems().remove(row);
@@ -1,23 +1,24 @@
 package application.bookstore.models;
 
 
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.CoverStore;
 import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.auxiliaries.ImageCache;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.Date;
 
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
@@ -32,6 +33,8 @@ public class Book  implements DatabaseConnector {
   private int quantity;
   private Supplier supplier;
   private final IntegerProperty chosenQuantity = new SimpleIntegerProperty(0);
+  //Whether the book is in the basket, shown by the check box cells of BookView
+  private final BooleanProperty selected = new SimpleBooleanProperty(this, "selected", false);
   private String imageUrl;
 
     //Constructor made for Book object which will be added to table , so purchased date and purchased price are not needed
@@ -146,7 +149,7 @@ public class Book  implements DatabaseConnector {
 
   public void setSupplierId(Supplier supplier) {
     supplierid = supplier.getSupplierId();
-    try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+    try (Connection connection = ConnectionPool.getConnection()) {
       String updateSql = "UPDATE Book SET supplierId = ? WHERE ISBN = ?";
 
       try (PreparedStatement updateStatement = connection.prepareStatement(updateSql)) {
@@ -232,6 +235,18 @@ public class Book  implements DatabaseConnector {
     this.chosenQuantityProperty().set(chosenQuantity);
   }
 
+  public final BooleanProperty selectedProperty() {
+    return this.selected;
+  }
+
+  public final boolean isSelected() {
+    return this.selected.get();
+  }
+
+  public final void setSelected(boolean selected) {
+    this.selected.set(selected);
+  }
+
 
 
   @Override
@@ -252,16 +267,13 @@ public class Book  implements DatabaseConnector {
             '}';
   }
   public void saveImageLocally(File sourceImageFile) {
+    if (sourceImageFile == null) {
+      return;
+    }
     try {
-      String baseFolderPath = System.getProperty("user.dir");
-      String subFolderPath = "BookImages";
-      String folderPath = baseFolderPath + File.separator + subFolderPath;
-      String destinationPath = folderPath + File.separator + ISBN + ".png";
-
-      Files.createDirectories(Paths.get(baseFolderPath));
-      Files.createDirectories(Paths.get(folderPath));
-      Files.copy(sourceImageFile.toPath(), new File(destinationPath).toPath(), StandardCopyOption.REPLACE_EXISTING);
-      this.imageUrl = "file:" + File.separator + File.separator + destinationPath;
+      //Stored once per content hash, with the pre-scaled table and detail variants so views never decode the original
+      this.imageUrl = CoverStore.store(sourceImageFile);
+      ImageCache.getInstance().invalidate(ISBN);
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -275,13 +287,13 @@ public class Book  implements DatabaseConnector {
   }
   public Image getLocalImage() {
     if (imageUrl != null && !imageUrl.isEmpty()) {
-      return new Image(imageUrl);
+      return new Image(CoverStore.toUrl(imageUrl));
     }
     return null;
   }
 
-  public void saveToDatabase() {
-    try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+  public boolean saveToDatabase() {
+    try (Connection connection = ConnectionPool.getConnection()) {
       String sql = "INSERT INTO Book (ISBN, name, author, category, supplier, description, bookURL, original_price, selling_price, quantity) " +
               "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
@@ -297,13 +309,15 @@ public class Book  implements DatabaseConnector {
         preparedStatement.setDouble(9, sellingPrice);
         preparedStatement.setInt(10, quantity);
         preparedStatement.executeUpdate();
+        return true;
       }
     } catch (SQLException e) {
       e.printStackTrace();
     }
+    return false;
   }
-  public void updateInDatabase() {
-    try (Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD)) {
+  public boolean updateInDatabase() {
+    try (Connection connection = ConnectionPool.getConnection()) {
       String sql = "UPDATE Book SET name = ?, author = ?, category = ?,  " +
               "description = ?, bookURL = ?, original_price = ?, selling_price = ?, quantity = ? " +
               "WHERE ISBN = ?";
@@ -325,10 +339,12 @@ public class Book  implements DatabaseConnector {
         } else {
           System.out.println("Book with ISBN " + ISBN + " updated successfully.");
         }
+        return rowsAffected > 0;
       }
     } catch (SQLException e) {
       e.printStackTrace();
     }
+    return false;
   }
 }
 
@@ -0,0 +1,45 @@
+package application.bookstore.models;
+
+//One basket line as it stood when the sale started. Checkout and the receipt work from these, so
+//changes to the shared Book while the sale is being written can't make the stock, bill and receipt disagree.
+public final class SaleLine {
+    private final String ISBN;
+    private final String title;
+    private final double originalPrice;
+    private final double sellingPrice;
+    private final int quantity;
+
+    public SaleLine(String ISBN, String title, double originalPrice, double sellingPrice, int quantity) {
+        this.ISBN = ISBN;
+        this.title = title;
+        this.originalPrice = originalPrice;
+        this.sellingPrice = sellingPrice;
+        this.quantity = quantity;
+    }
+
+    //Reads the book's chosen quantity, so call it on the FX thread
+    public static SaleLine of(Book book) {
+        return new SaleLine(book.getISBN(), book.getTitle(), book.getOriginalPrice(), book.getSellingPrice(),
+                book.getChosenQuantity());
+    }
+
+    public String getISBN() {
+        return ISBN;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public double getOriginalPrice() {
+        return originalPrice;
+    }
+
+    public double getSellingPrice() {
+        return sellingPrice;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+}
@@ -1,6 +1,9 @@
 package application.bookstore.views;
 
 import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.DataAccess;
+import application.bookstore.controllers.BookCatalog;
+import application.bookstore.controllers.SupplierRepository;
 import application.bookstore.models.Book;
 import application.bookstore.models.Supplier;
 import javafx.geometry.Insets;
@@ -23,6 +26,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -76,7 +80,7 @@ public class AddBookView {
         addBook = new Button("Add Book");
         addBook.setMinHeight(50);
         addBook.setMinWidth(150);
-        addBook.setOnAction(e -> {createBook(); stage.close();});
+        addBook.setOnAction(e -> createBook(stage));
         cancelButton = new Button("Cancel");
         cancelButton.setMinHeight(50);
         cancelButton.setMinWidth(150);
@@ -194,44 +198,61 @@ public class AddBookView {
             imageView.setImage(image);
         }
     }
-    public Book createBook() {
-        try {
-            if (!validateISBN(isbnTextField.getText())) {
-                Alerts.showAlert(Alert.AlertType.ERROR , "Invalid ISBN" , "Please enter a valid ISBN");
-                return null;
-            }
+    private void createBook(Stage stage) {
+        if (!validateISBN(isbnTextField.getText())) {
+            Alerts.showAlert(Alert.AlertType.ERROR , "Invalid ISBN" , "Please enter a valid ISBN");
+            return;
+        }
 
-            if (!validateEmail(supplierEmailTextField.getText())) {
-                Alerts.showAlert(Alert.AlertType.ERROR , "Invalid Supplier Email" , "Please enter a valid Supplier Email");
-                return null;
-            }
+        if (!validateEmail(supplierEmailTextField.getText())) {
+            Alerts.showAlert(Alert.AlertType.ERROR , "Invalid Supplier Email" , "Please enter a valid Supplier Email");
+            return;
+        }
 
-            if (!validatePhoneNumber(supplierPhoneTextField.getText())) {
-                Alerts.showAlert(Alert.AlertType.ERROR , "Invalid Supplier Phone Number" , "Please enter a valid Phone Number");
-                return null;
-            }
+        if (!validatePhoneNumber(supplierPhoneTextField.getText())) {
+            Alerts.showAlert(Alert.AlertType.ERROR , "Invalid Supplier Phone Number" , "Please enter a valid Phone Number");
+            return;
+        }
 
-            Supplier supplier = new Supplier(supplierNameTextField.getText() , supplierEmailTextField.getText() ,
-                    supplierPhoneLabel.getText() , supplierAddressTextField.getText());
-            book = new Book(
-                    isbnTextField.getText(),
-                    titleTextField.getText(),
-                    authorTextField.getText(),
-                    categoryTextField.getText(),
-                    supplier.findSupplierId(),
-                    descriptionTextField.getText(),
-                    Double.parseDouble(originalPriceTextField.getText()),
-                    Double.parseDouble(sellingPriceTextField.getText()),
-                    Integer.parseInt(quantityTextField.getText())
-            );
-            book.saveImageLocally(selectedImageFile);
-            book.saveToDatabase();
-
-            return book;
+        double originalPrice, sellingPrice;
+        int quantity;
+        try {
+            originalPrice = Double.parseDouble(originalPriceTextField.getText());
+            sellingPrice = Double.parseDouble(sellingPriceTextField.getText());
+            quantity = Integer.parseInt(quantityTextField.getText());
         } catch (NumberFormatException e) {
-            e.printStackTrace();
-            return null;
+            Alerts.showAlert(Alert.AlertType.ERROR , "Invalid Number" , "Please enter valid prices and quantity");
+            return;
         }
+
+        String isbn = isbnTextField.getText();
+        String title = titleTextField.getText();
+        String author = authorTextField.getText();
+        String category = categoryTextField.getText();
+        String description = descriptionTextField.getText();
+        File imageFile = selectedImageFile;
+        Supplier supplier = new Supplier(supplierNameTextField.getText() , supplierEmailTextField.getText() ,
+                supplierPhoneLabel.getText() , supplierAddressTextField.getText());
+
+        //Resolving the supplier, storing the cover and the insert all run on the data-access pool
+        hbox.setDisable(true);
+        DataAccess.submit(() -> {
+            Book created = new Book(isbn, title, author, category,
+                    SupplierRepository.getInstance().resolve(supplier),
+                    description, originalPrice, sellingPrice, quantity);
+            created.saveImageLocally(imageFile);
+            if (!created.saveToDatabase()) {
+                throw new SQLException("The book could not be saved");
+            }
+            return created;
+        }, created -> {
+            book = created;
+            BookCatalog.getInstance().put(created);
+            stage.close();
+        }, error -> {
+            hbox.setDisable(false);
+            Alerts.showAlert(Alert.AlertType.ERROR , "Book not saved" , "The book could not be saved: " + error.getMessage());
+        });
     }
 
     public Book getAddedBook() {
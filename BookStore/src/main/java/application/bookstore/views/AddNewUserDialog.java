@@ -1,9 +1,9 @@
 package application.bookstore.views;
 
 import application.bookstore.Exceptions.EmailAlreadyExistsException;
-import application.bookstore.Exceptions.PasswordAlreadyExistsException;
 import application.bookstore.Exceptions.UsernameAlreadyExistsException;
 import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
 import application.bookstore.controllers.AddNewUserController;
 import application.bookstore.models.User;
@@ -21,7 +21,6 @@ import javafx.event.ActionEvent;
 import javafx.util.Callback;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
@@ -66,11 +65,40 @@ public class AddNewUserDialog extends Dialog<User> implements DatabaseConnector
 
         Button button = (Button) getDialogPane().lookupButton(ButtonType.OK);
         button.addEventFilter(ActionEvent.ACTION, new EventHandler<ActionEvent>() {
+            //Set once the uniqueness check has passed, so the re-fired OK closes the dialog
+            private boolean uniqueChecked;
+
             @Override
             public void handle(ActionEvent event) {
+                if (uniqueChecked) {
+                    uniqueChecked = false;
+                    return;
+                }
+                event.consume();
                 if (!validateDialog()) {
-                    event.consume();
+                    return;
                 }
+                //The uniqueness check queries the database, so it runs on the data-access pool
+                String username = getUsername();
+                String email = getEmail();
+                button.setDisable(true);
+                DataAccess.submit(() -> {
+                    AddNewUserController.allValuesUnique(username, email);
+                    return null;
+                }, done -> {
+                    button.setDisable(false);
+                    uniqueChecked = true;
+                    button.fire();
+                }, error -> {
+                    button.setDisable(false);
+                    if (error instanceof UsernameAlreadyExistsException) {
+                        Alerts.showAlert(Alert.AlertType.ERROR,"Username exists","The entered username already exists");
+                    } else if (error instanceof EmailAlreadyExistsException) {
+                        Alerts.showAlert(Alert.AlertType.ERROR,"Email exists","The entered email already exists");
+                    } else {
+                        Alerts.showAlert(Alert.AlertType.ERROR,"Database Error","The user could not be checked.\n" + error.getMessage());
+                    }
+                });
             }
 
             private boolean validateDialog() {
@@ -102,23 +130,6 @@ public class AddNewUserDialog extends Dialog<User> implements DatabaseConnector
                     return false;
                 }
 
-                try
-                {
-                    AddNewUserController.allValuesUnique(getUsername(),getEmail(),getPassword());
-                }catch (UsernameAlreadyExistsException e)
-                {
-                    Alerts.showAlert(Alert.AlertType.ERROR,"Username exists","The entered username already exists");
-                    return false;
-                }catch (EmailAlreadyExistsException ex)
-                {
-                    Alerts.showAlert(Alert.AlertType.ERROR,"Email exists","The entered email already exists");
-                    return false;
-                }catch (PasswordAlreadyExistsException exe)
-                {
-                    Alerts.showAlert(Alert.AlertType.ERROR,"Password exists","The entered password already exists");
-                    return false;
-                }
-
                 return true;
             }
         });
@@ -0,0 +1,166 @@
+package application.bookstore.views;
+
+import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.DataAccess;
+import application.bookstore.controllers.BillArchive;
+import application.bookstore.controllers.BillArchive.Entry;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.print.PrinterJob;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Finds bills in the archive by order number, cashier and date, shows the receipt and reprints it
+public class BillArchiveView {
+    private static final int MAX_RESULTS = 500;
+
+    private TextField orderField;
+    private ComboBox<String> cashierBox;
+    private DatePicker fromPicker;
+    private DatePicker toPicker;
+    private TableView<Entry> tableView;
+    private TextArea receiptArea;
+
+    public Scene showView(Stage stage) {
+        stage.setTitle("Bills");
+        BorderPane pane = new BorderPane();
+        pane.setPadding(new Insets(10));
+
+        orderField = new TextField();
+        orderField.setPromptText("Order #");
+        orderField.setPrefWidth(90);
+        cashierBox = new ComboBox<>();
+        cashierBox.setEditable(true);
+        cashierBox.setPromptText("Cashier");
+        fromPicker = new DatePicker();
+        fromPicker.setPromptText("From");
+        toPicker = new DatePicker();
+        toPicker.setPromptText("To");
+        Button searchButton = new Button("Search");
+        searchButton.setDefaultButton(true);
+        searchButton.setOnAction(e -> search());
+        Button clearButton = new Button("Clear");
+        clearButton.setOnAction(e -> {
+            orderField.clear();
+            cashierBox.setValue(null);
+            fromPicker.setValue(null);
+            toPicker.setValue(null);
+            search();
+        });
+        HBox filters = new HBox(10, orderField, cashierBox, fromPicker, toPicker, searchButton, clearButton);
+        filters.setAlignment(Pos.CENTER_LEFT);
+        filters.setPadding(new Insets(0, 0, 10, 0));
+        pane.setTop(filters);
+
+        tableView = new TableView<>();
+        TableColumn<Entry, Integer> orderCol = new TableColumn<>("Order #");
+        orderCol.setCellValueFactory(new PropertyValueFactory<>("orderId"));
+        TableColumn<Entry, LocalDateTime> dateCol = new TableColumn<>("Date");
+        dateCol.setCellValueFactory(new PropertyValueFactory<>("issued"));
+        dateCol.setMinWidth(170);
+        TableColumn<Entry, String> cashierCol = new TableColumn<>("Cashier");
+        cashierCol.setCellValueFactory(new PropertyValueFactory<>("username"));
+        TableColumn<Entry, Double> totalCol = new TableColumn<>("Total");
+        totalCol.setCellValueFactory(new PropertyValueFactory<>("amount"));
+        tableView.getColumns().addAll(orderCol, dateCol, cashierCol, totalCol);
+        tableView.setPrefWidth(430);
+        tableView.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, selected) -> showReceipt(selected));
+
+        receiptArea = new TextArea();
+        receiptArea.setEditable(false);
+        receiptArea.setFont(Font.font("Monospaced", 13));
+
+        Button reprintButton = new Button("Reprint");
+        reprintButton.setMinHeight(40);
+        reprintButton.disableProperty().bind(tableView.getSelectionModel().selectedItemProperty().isNull());
+        reprintButton.setOnAction(e -> reprint(stage, tableView.getSelectionModel().getSelectedItem()));
+        HBox bottom = new HBox(reprintButton);
+        bottom.setAlignment(Pos.CENTER_RIGHT);
+        bottom.setPadding(new Insets(10, 0, 0, 0));
+
+        pane.setBottom(bottom);
+        pane.setRight(receiptArea);
+        BorderPane.setMargin(receiptArea, new Insets(0, 0, 0, 10));
+
+        //Opening the archive reads its index and indexes any journal records written since, off the FX thread
+        Task<BillArchive> open = DataAccess.submit(BillArchive::getInstance, archive -> {
+            cashierBox.getItems().setAll(archive.getUsernames());
+            search();
+        }, error -> Alerts.showAlert(Alert.AlertType.ERROR, "Bills", "The bill archive could not be opened.\n" + error.getMessage()));
+        pane.setCenter(new StackPane(tableView, DataAccess.busyIndicator(open)));
+
+        return new Scene(pane, 900, 600);
+    }
+
+    private void search() {
+        Integer orderId = null;
+        String order = orderField.getText().trim();
+        if (!order.isEmpty()) {
+            try {
+                orderId = Integer.parseInt(order.replace("#", ""));
+            } catch (NumberFormatException e) {
+                Alerts.showAlert(Alert.AlertType.ERROR, "Form Error!", "The order number must be a number");
+                return;
+            }
+        }
+        LocalDate from = fromPicker.getValue();
+        LocalDate to = toPicker.getValue();
+        List<Entry> found = BillArchive.getInstance().search(orderId, cashierBox.getValue(), from, to, MAX_RESULTS);
+        tableView.getItems().setAll(found);
+        if (found.size() == 1) {
+            tableView.getSelectionModel().selectFirst();
+        }
+    }
+
+    private void showReceipt(Entry entry) {
+        if (entry == null) {
+            receiptArea.clear();
+            return;
+        }
+        try {
+            receiptArea.setText(BillArchive.getInstance().readReceipt(entry));
+        } catch (IOException e) {
+            e.printStackTrace();
+            receiptArea.setText("The receipt could not be read: " + e.getMessage());
+        }
+    }
+
+    //Prints the receipt when a printer is available, otherwise saves a copy next to the other bills
+    private void reprint(Stage stage, Entry entry) {
+        String receipt = receiptArea.getText();
+        PrinterJob job = PrinterJob.createPrinterJob();
+        if (job != null && job.showPrintDialog(stage)) {
+            Text text = new Text(receipt);
+            text.setFont(Font.font("Monospaced", 10));
+            if (job.printPage(text)) {
+                job.endJob();
+            }
+            return;
+        }
+        Path copy = Paths.get("bills", "reprint_" + entry.getOrderId() + ".txt");
+        try {
+            Files.createDirectories(copy.getParent());
+            Files.writeString(copy, receipt, StandardCharsets.UTF_8);
+            Alerts.showAlert(Alert.AlertType.INFORMATION, "Reprint", "No printer selected, the receipt was saved to " + copy);
+        } catch (IOException e) {
+            Alerts.showAlert(Alert.AlertType.ERROR, "Reprint", "The receipt could not be saved: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package application.bookstore.views;
+
+import application.bookstore.models.Book;
+import javafx.beans.property.BooleanProperty;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.TableCell;
+
+import java.util.function.BiConsumer;
+
+//Check box bound to Book.selectedProperty(), for a column whose values are that property.
+//Each cell keeps one CheckBox and only rebinds it when the cell starts showing another book,
+//so the tick survives scrolling and a scroll doesn't create check boxes or listeners.
+//onToggle is told when the user ticks or clears the box.
+public class BookSelectCell extends TableCell<Book, Boolean> {
+    private final CheckBox checkBox = new CheckBox();
+    private BooleanProperty bound;
+
+    public BookSelectCell(BiConsumer<Book, Boolean> onToggle) {
+        checkBox.setOnAction(event -> {
+            Book book = getBook();
+            if (book != null) {
+                onToggle.accept(book, checkBox.isSelected());
+            }
+        });
+    }
+
+    @Override
+    protected void updateItem(Boolean item, boolean empty) {
+        super.updateItem(item, empty);
+        Book book = empty ? null : getBook();
+        BooleanProperty property = book == null ? null : book.selectedProperty();
+        if (property != bound) {
+            if (bound != null) {
+                checkBox.selectedProperty().unbindBidirectional(bound);
+            }
+            bound = property;
+            if (bound != null) {
+                checkBox.selectedProperty().bindBidirectional(bound);
+            }
+        }
+        setGraphic(book == null ? null : checkBox);
+    }
+
+    private Book getBook() {
+        int index = getIndex();
+        if (getTableView() == null || index < 0 || index >= getTableView().getItems().size()) {
+            return null;
+        }
+        return getTableView().getItems().get(index);
+    }
+}
@@ -1,37 +1,50 @@
 package application.bookstore.views;
 
+import application.bookstore.Exceptions.InsufficientStockException;
 import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.CoverImageLoader;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
 import application.bookstore.charts.Chart1;
+import application.bookstore.controllers.BookCatalog;
 import application.bookstore.controllers.BookController;
 import application.bookstore.controllers.BookList;
+import application.bookstore.controllers.BookPager;
+import application.bookstore.controllers.CheckoutController;
 import application.bookstore.controllers.FilterController;
 import application.bookstore.models.Book;
+import application.bookstore.models.SaleLine;
 import application.bookstore.models.User;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.StringProperty;
-import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
-import javafx.scene.text.Text;
 import javafx.stage.Stage;
-import javafx.util.Callback;
+import javafx.util.Duration;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.function.Predicate;
+import java.util.List;
+import java.util.function.BiConsumer;
 
 
 public class BookView implements DatabaseConnector {
@@ -42,12 +55,13 @@ public class BookView implements DatabaseConnector {
     private TextField search_field;
     private HBox hbox;
     private Label totalSumLabel;
-    private ChoiceBox<Integer> choiceBox;
     private User user;
     private BookList bookList;
     private ArrayList<Book> books;
     private Button search_button;
     private TableView<Book> tableView;
+    private BookPager pager;
+    private int firstVisibleIndex;
 
     public BookView(StringProperty role ,User user) {
         this.role = role;
@@ -57,11 +71,11 @@ public class BookView implements DatabaseConnector {
     public Scene showView(Stage stage) {
         pane = new BorderPane();
 
-        search_label = new Label("Search for a book title: ");
+        search_label = new Label("Search for a book: ");
         search_label.setMinHeight(40);
 
         search_field = new TextField();
-        search_field.setPromptText("Enter a book title...");
+        search_field.setPromptText("Enter a title, author, ISBN or category...");
         search_field.setMinWidth(600);
         search_field.setMinHeight(40);
 
@@ -90,11 +104,9 @@ public class BookView implements DatabaseConnector {
                         try {
                             Stage editStage = new Stage();
                             editStage.setScene(editBookView.showView(editStage));
+                            //The edited Book is the cached instance shown in the table, a repaint is enough
+                            editStage.setOnHidden(event1 -> tableView.refresh());
                             editStage.show();
-                            bookList = new BookList();
-                            books = bookList.getBooks();
-                            tableView.getItems().addAll(books);
-                            tableView.refresh();
                         } catch (Exception ex) {
                             throw new RuntimeException(ex);
                         }
@@ -102,10 +114,23 @@ public class BookView implements DatabaseConnector {
                     });
 
                     deleteButton.setOnAction(e -> {
-                        BookController.deleteBook(selectedBook.getISBN());
-                        tableView.getItems().remove(selectedBook);
-                        tableView.refresh();
-                        actionStage.close();
+                        actionBox.setDisable(true);
+                        DataAccess.submit(() -> BookController.deleteBook(selectedBook.getISBN()), deleted -> {
+                            if (!deleted) {
+                                actionBox.setDisable(false);
+                                Alerts.showAlert(Alert.AlertType.ERROR, "Delete Failed",
+                                        "The book could not be deleted. Books that appear on a bill are kept for the sales records.");
+                                return;
+                            }
+                            selectedBooks.remove(selectedBook);
+                            //Removed from the shown list so the search and category filter stay applied
+                            books.remove(selectedBook);
+                            tableView.getItems().remove(selectedBook);
+                            actionStage.close();
+                        }, error -> {
+                            actionBox.setDisable(false);
+                            Alerts.showAlert(Alert.AlertType.ERROR, "Delete Failed", "The book could not be deleted.\n" + error.getMessage());
+                        });
                     });
 
                     actionBox.setAlignment(Pos.CENTER);
@@ -119,140 +144,41 @@ public class BookView implements DatabaseConnector {
             return row;
         });
 
-        TableColumn<Book, Long> isbnCol = new TableColumn<>("ISBN");
-        isbnCol.setCellValueFactory(
-                new PropertyValueFactory<>("ISBN"));
-        isbnCol.setMinWidth(115);
-
         TableColumn<Book, Long> buyIsbnCol = new TableColumn<>("ISBN");
         buyIsbnCol.setCellValueFactory(
                 new PropertyValueFactory<>("ISBN"));
         buyIsbnCol.setMinWidth(115);
 
-
-        TableColumn<Book, String> titleCol = new TableColumn<>("Title");
-        titleCol.setCellValueFactory(
-                new PropertyValueFactory<>("title"));
-        titleCol.setMinWidth(115);
-        titleCol.setCellFactory(col -> {
-            return new TableCell<Book, String>() {
-                @Override
-                protected void updateItem(String item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (item == null || empty) {
-                        setText(null);
-                    } else {
-                        Text text = new Text(item);
-                        text.wrappingWidthProperty().bind(titleCol.widthProperty());
-                        setGraphic(text);
-                        setWrapText(true);
-                    }
-                }
-            };
-        });
-
-        TableColumn<Book, String> buyTitleCol = new TableColumn<>("Title");
-        buyTitleCol.setCellValueFactory(
-                new PropertyValueFactory<>("title"));
-        buyTitleCol.setMinWidth(115);
-        buyTitleCol.setCellFactory(col -> {
-            TableCell<Book, String> cell = new TableCell<Book, String>() {
-                @Override
-                protected void updateItem(String item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (item == null || empty) {
-                        setText(null);
-                    } else {
-                        Text text = new Text(item);
-                        text.wrappingWidthProperty().bind(buyTitleCol.widthProperty());
-                        setGraphic(text);
-                        setWrapText(true);
-                    }
-                }
-            };
-            return cell;
-        });
-
-        TableColumn<Book, String> authorCol = new TableColumn<>("Author");
-        authorCol.setCellValueFactory(
-                new PropertyValueFactory<>("author"));
-        authorCol.setMinWidth(115);
+        TableColumn<Book, String> buyTitleCol = wrappingTextColumn("Title", "title", 115);
 
         TableColumn<Book, String> buyAuthorCol = new TableColumn<>("Author");
         buyAuthorCol.setCellValueFactory(
                 new PropertyValueFactory<>("author"));
         buyAuthorCol.setMinWidth(115);
 
-        TableColumn<Book, String> categoryCol = new TableColumn<>("Category");
-        categoryCol.setCellValueFactory(
-                new PropertyValueFactory<>("category"));
-        categoryCol.setMinWidth(115);
-
         TableColumn<Book, String> sellingPrice_col = new TableColumn<>("Price");
         sellingPrice_col.setCellValueFactory(
                 new PropertyValueFactory<>("sellingPrice"));
         sellingPrice_col.setMinWidth(115);
 
+        TableColumn<Book, Book> buyImageCol = getBookImageViewTableColumn();
 
-        TableColumn<Book, String> descriptionCol = new TableColumn<>("Description");
-        descriptionCol.setCellValueFactory(
-                new PropertyValueFactory<>("description"));
-        descriptionCol.setCellFactory(col -> {
-            TableCell<Book, String> cell = new TableCell<Book, String>() {
-                @Override
-                protected void updateItem(String item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (item == null || empty) {
-                        setText(null);
-                    } else {
-                        Text text = new Text(item);
-                        text.wrappingWidthProperty().bind(descriptionCol.widthProperty());
-                        setGraphic(text);
-                        setWrapText(true);
-                    }
+        //The basket holds what is ticked in the catalog; the ticks follow Book.selectedProperty() of the books in it.
+        //A book leaving the basket, however it leaves, drops its chosen quantity with the tick.
+        selectedBooks.addListener((ListChangeListener<Book>) change -> {
+            while (change.next()) {
+                for (Book removed : change.getRemoved()) {
+                    removed.setSelected(false);
+                    removed.setChosenQuantity(0);
+                }
+                for (Book added : change.getAddedSubList()) {
+                    added.setSelected(true);
                 }
-            };
-            return cell;
-        });
-        descriptionCol.setMinWidth(160);
-
-
-
-        TableColumn<Book, ImageView> imageCol = getBookImageViewTableColumn();
-
-
-        TableColumn<Book, ImageView> buyImageCol = getBookImageViewTableColumn();
-
-        TableColumn<Book, Integer> quantityCol = new TableColumn<>("Quantity");
-        quantityCol.setCellValueFactory(
-                new PropertyValueFactory<>("quantity"));
-        quantityCol.setMinWidth(115);
-
-
-
-        TableColumn<Book ,CheckBox> selectCol = new TableColumn<>("");
-        selectCol.setSortable(false);
-        selectCol.setCellValueFactory(new Callback<TableColumn.CellDataFeatures<Book, CheckBox>, ObservableValue<CheckBox>>() {
-            @Override
-            public ObservableValue<CheckBox> call(TableColumn.CellDataFeatures<Book, CheckBox> chosenBook) {
-                Book chosen_book = chosenBook.getValue();
-                CheckBox checkBox = new CheckBox();
-                checkBox.selectedProperty().setValue(false);
-                checkBox.selectedProperty().addListener((ov, old_val, new_val) -> {
-                    if (new_val) {
-                        selectedBooks.add(chosen_book);
-                    } else {
-                        selectedBooks.remove(chosen_book);
-                        updateTotalSumLabel();
-                    }
-                    buying_tableView.refresh();
-                });
-                return new SimpleObjectProperty<>(checkBox);
             }
+            updateTotalSumLabel();
         });
 
-
-        TableColumn<Book ,CheckBox> buyselectCol = new TableColumn<>("");
+        TableColumn<Book, Boolean> buyselectCol = new TableColumn<>("");
         FileInputStream file2 = null;
         try {
             String os = System.getProperty("os.name").toLowerCase();
@@ -270,47 +196,25 @@ public class BookView implements DatabaseConnector {
         image2.setFitHeight(20);
         buyselectCol.setGraphic(image2);
         buyselectCol.setSortable(false);
-        buyselectCol.setCellValueFactory(new Callback<TableColumn.CellDataFeatures<Book, CheckBox>, ObservableValue<CheckBox>>() {
-            @Override
-            public ObservableValue<CheckBox> call(TableColumn.CellDataFeatures<Book, CheckBox> chosenBook) {
-                Book chosen_book = chosenBook.getValue();
-                CheckBox checkBox = new CheckBox();
-                checkBox.selectedProperty().setValue(true);
-                checkBox.selectedProperty().addListener((ov, old_val, new_val) -> {
-                    if (!new_val){
-                        selectedBooks.remove(chosen_book);
-                        choiceBox.setValue(0);
-                    }
-                });
-                return new SimpleObjectProperty<CheckBox>(checkBox);
+        buyselectCol.setCellValueFactory(cellData -> cellData.getValue().selectedProperty());
+        buyselectCol.setCellFactory(col -> new BookSelectCell((book, selected) -> {
+            if (!selected) {
+                selectedBooks.remove(book);
             }
-        });
+        }));
 
+        //Follows the chosen quantity, so the row total changes as the spinner moves
         TableColumn<Book, Double> totalPriceCol = new TableColumn<>("Total Price");
         totalPriceCol.setCellValueFactory(cellData -> {
             Book book = cellData.getValue();
-            double originalPrice = book.getSellingPrice();
-            int chosenQuantity = book.getChosenQuantity();
-            double totalPrice = originalPrice * chosenQuantity;
-            return new SimpleObjectProperty<>(totalPrice);
+            return Bindings.createObjectBinding(() -> book.getSellingPrice() * book.getChosenQuantity(),
+                    book.chosenQuantityProperty());
         });
         totalPriceCol.setMinWidth(115);
 
-        TableColumn<Book, ChoiceBox<Integer>> buyQuantityCol = new TableColumn<>("Choose Quantity");
-        buyQuantityCol.setCellValueFactory(cellData -> {
-            Book book = cellData.getValue();
-            ChoiceBox<Integer> choiceBox = new ChoiceBox<>();
-            for (int i = 0; i <= book.getQuantity(); i++) {
-                choiceBox.getItems().add(i);
-            }
-            choiceBox.setValue(book.getChosenQuantity());
-            choiceBox.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
-                book.setChosenQuantity(newVal);
-                updateTotalSumLabel();
-            });
-
-            return new SimpleObjectProperty<>(choiceBox);
-        });
+        TableColumn<Book, Number> buyQuantityCol = new TableColumn<>("Choose Quantity");
+        buyQuantityCol.setCellValueFactory(cellData -> cellData.getValue().chosenQuantityProperty());
+        buyQuantityCol.setCellFactory(col -> new QuantitySpinnerCell(this::updateTotalSumLabel));
         buyQuantityCol.setMinWidth(115);
 
 
@@ -321,20 +225,52 @@ public class BookView implements DatabaseConnector {
         buying_tableView.setItems(selectedBooks);
 
 
-        tableView.getColumns().addAll(selectCol , isbnCol , titleCol , authorCol ,
-                categoryCol , descriptionCol , imageCol  , quantityCol);
+        tableView.getColumns().addAll(catalogColumns((book, selected) -> {
+            if (selected && !selectedBooks.contains(book)) {
+                selectedBooks.add(book);
+            } else if (!selected) {
+                selectedBooks.remove(book);
+            }
+        }));
 
         bookList = new BookList();
-        books = bookList.getBooks();
-        if(!(user.getRoleString().equalsIgnoreCase("librarian")) && !(books.isEmpty())){
-            BookList.notifyLowQuantity();
+        books = new ArrayList<>();
+        if ("paged".equalsIgnoreCase(CATALOG_MODE)) {
+            setUpPaging();
         }
-        tableView.getItems().addAll(books);
 
         VBox tables = new VBox();
         tables.getChildren().addAll(tableView , buying_tableView);
 
-        ComboBox<String> filterComboBox = FilterController.createFilterComboBox(bookList.getCategories());
+        //Categories arrive with the books, until then only "All" is offered
+        ComboBox<String> filterComboBox = FilterController.createFilterComboBox(new ArrayList<>(List.of("All")));
+
+        //The catalog (in paged mode only the categories and low-stock list) is read on the data-access pool
+        Task<ArrayList<Book>> load = DataAccess.submit(() -> {
+            if (pager != null) {
+                bookList.loadSummary();
+                return new ArrayList<>();
+            }
+            return bookList.getBooks();
+        }, loaded -> {
+            tableView.setPlaceholder(null);
+            books = loaded;
+            filterComboBox.getItems().setAll(bookList.getCategories());
+            filterComboBox.getSelectionModel().selectFirst();
+            if (pager != null) {
+                pager.reset();
+            } else {
+                //Anything typed while the catalog was loading is applied now
+                filterTable(filterComboBox.getValue(), search_field.getText());
+            }
+            if(!(user.getRoleString().equalsIgnoreCase("librarian")) && (pager != null || !(books.isEmpty()))){
+                BookList.notifyLowQuantity();
+            }
+        }, error -> {
+            tableView.setPlaceholder(null);
+            Alerts.showAlert(Alert.AlertType.ERROR, "Database Error", "The books could not be loaded.\n" + error.getMessage());
+        });
+        tableView.setPlaceholder(DataAccess.busyIndicator(load));
 
         search_button = new Button("Search");
         search_button.setMinWidth(30);
@@ -352,6 +288,10 @@ public class BookView implements DatabaseConnector {
                     }
                 });
         filterComboBox.setOnAction(event -> filterTable(filterComboBox.getValue(), search_field.getText()));
+        //Search as you type, waiting for a short pause so a burst of keystrokes runs a single query
+        PauseTransition searchDelay = new PauseTransition(Duration.millis(150));
+        searchDelay.setOnFinished(event -> filterTable(filterComboBox.getValue(), search_field.getText()));
+        search_field.textProperty().addListener((observable, oldValue, newValue) -> searchDelay.playFromStart());
         hbox = new HBox();
         hbox.setAlignment(Pos.CENTER);
         hbox.getChildren().addAll(search_label, search_field , search_button , filterComboBox);
@@ -366,20 +306,66 @@ public class BookView implements DatabaseConnector {
             if(selectedBooks.isEmpty()){
                 Alerts.showAlert(Alert.AlertType.ERROR , "No Books Selected!" , "Please Select Book!");
             }else {
-                BookController.generateBillToDatabase(selectedBooks , calculateTotalSum() , user);
-                BookController.generateBill(user, selectedBooks, calculateTotalSum());
-                for (Book selectedBook : selectedBooks) {
-                    int newQuantity = selectedBook.getQuantity() - selectedBook.getChosenQuantity();
-                    selectedBook.setQuantity(newQuantity);
+                //The sale is written on the data-access pool from a snapshot of the basket taken here, and both
+                //tables are disabled until it finishes so the basket can't change under it.
+                //A checkout is not cancelled when leaving the screen, it either commits or rolls back on its own.
+                List<Book> basket = new ArrayList<>(selectedBooks);
+                List<SaleLine> lines = new ArrayList<>();
+                double total = 0;
+                for (Book book : basket) {
+                    SaleLine line = SaleLine.of(book);
+                    lines.add(line);
+                    total += line.getSellingPrice() * line.getQuantity();
                 }
-                selectedBooks.clear();
-                tableView.refresh();
-                totalSumLabel.setText("");
-                buying_tableView.refresh();
+                double amount = total;
+                hbox_bottom.setDisable(true);
+                buying_tableView.setDisable(true);
+                tableView.setDisable(true);
+                Task<Integer> checkout = DataAccess.submit(() -> {
+                    LocalDateTime issued = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+                    int billId = CheckoutController.checkout(lines, amount, user, issued);
+                    BookController.generateBill(billId, issued, user, lines, amount);
+                    return billId;
+                }, billId -> {
+                    hbox_bottom.setDisable(false);
+                    buying_tableView.setDisable(false);
+                    tableView.setDisable(false);
+                    BookCatalog.getInstance().applySale(basket, lines);
+                    selectedBooks.clear();
+                    tableView.refresh();
+                    totalSumLabel.setText("");
+                    buying_tableView.refresh();
 
-                Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
-                alert.setHeaderText("Successfully Generated Bill");
-                alert.show();
+                    Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+                    alert.setHeaderText("Successfully Generated Bill");
+                    alert.show();
+                }, error -> {
+                    hbox_bottom.setDisable(false);
+                    buying_tableView.setDisable(false);
+                    tableView.setDisable(false);
+                    if (error instanceof InsufficientStockException ex) {
+                        //Another till sold these copies first, show what is left so the basket can be adjusted
+                        for (Book selectedBook : selectedBooks) {
+                            Integer available = ex.getAvailableByIsbn().get(selectedBook.getISBN());
+                            if (available != null) {
+                                selectedBook.setQuantity(available);
+                            }
+                        }
+                        tableView.refresh();
+                        buying_tableView.refresh();
+                        Alerts.showAlert(Alert.AlertType.WARNING, "Stock Changed", ex.getMessage());
+                    } else {
+                        Alerts.showAlert(Alert.AlertType.ERROR, "Checkout Failed",
+                                "The bill could not be saved and no stock was changed.\n" + error.getMessage());
+                    }
+                });
+                ProgressIndicator busy = DataAccess.busyIndicator(checkout);
+                hbox_bottom.getChildren().add(busy);
+                checkout.runningProperty().addListener((observable, wasRunning, isRunning) -> {
+                    if (!isRunning) {
+                        hbox_bottom.getChildren().remove(busy);
+                    }
+                });
             }
         });
         totalSumLabel = new Label("Total amount ");
@@ -407,6 +393,15 @@ public class BookView implements DatabaseConnector {
             }
         });
 
+        Button billsButton = new Button("Bills");
+        billsButton.setMinWidth(50);
+        billsButton.setMinHeight(50);
+        billsButton.setOnAction(event -> {
+            Stage popup = new Stage();
+            popup.setScene(new BillArchiveView().showView(popup));
+            popup.show();
+        });
+
         if(!(user.getRoleString().equalsIgnoreCase("librarian"))){
             Button addBook = new Button("Add Book");
             addBook.setOnAction(event -> {
@@ -417,12 +412,21 @@ public class BookView implements DatabaseConnector {
                 } catch (Exception e) {
                     throw new RuntimeException(e);
                 }
+                popup.setOnHidden(e -> {
+                    if (addBookView.getAddedBook() != null && pager != null) {
+                        pager.reset();
+                    } else if (addBookView.getAddedBook() != null) {
+                        books = new ArrayList<>(BookCatalog.getInstance().getBooks());
+                        //The new book is in the catalog's index, so it shows up only if it matches the filter
+                        filterTable(filterComboBox.getValue(), search_field.getText());
+                    }
+                });
                 popup.show();
             });
             addBook.setMinWidth(50);
             addBook.setMinHeight(50);
             if(user.getRoleString().equalsIgnoreCase("admin")) {
-                hbox_bottom.getChildren().addAll(totalSumLabel, generateBill, clearAllButton, addBook , goBackButton);
+                hbox_bottom.getChildren().addAll(totalSumLabel, generateBill, clearAllButton, billsButton, addBook , goBackButton);
             }else{
                 Button statistic = new Button("Statistic");
                 statistic.setMinWidth(50);
@@ -431,10 +435,10 @@ public class BookView implements DatabaseConnector {
                             Chart1 chart1 = new Chart1(user);
                             stage.setScene(chart1.showView(stage));
                         });
-                hbox_bottom.getChildren().addAll(totalSumLabel, generateBill, clearAllButton, addBook , statistic );
+                hbox_bottom.getChildren().addAll(totalSumLabel, generateBill, clearAllButton, billsButton, addBook , statistic );
             }
         }else{
-            hbox_bottom.getChildren().addAll(totalSumLabel , generateBill , clearAllButton );
+            hbox_bottom.getChildren().addAll(totalSumLabel , generateBill , clearAllButton , billsButton );
         }
         hbox_bottom.setAlignment(Pos.CENTER);
         hbox_bottom.setSpacing(30);
@@ -446,36 +450,133 @@ public class BookView implements DatabaseConnector {
         pane.setTop(hbox);
         pane.setBottom(hbox_bottom);
         stage.setTitle("Books");
-        return new Scene(pane, 1000 , 700 );
+        Scene scene = new Scene(pane, 1000 , 700 );
+        DataAccess.cancelOnLeave(load, scene);
+        //The catalog's Book objects outlive this screen, so their ticks are cleared with the basket on leaving it
+        scene.windowProperty().addListener((observable, oldWindow, newWindow) -> {
+            if (newWindow == null) {
+                selectedBooks.clear();
+            }
+        });
+        return scene;
     }
 
     private void filterTable(String selectedCategory, String searchText) {
-        Predicate<Book> predicate = book -> {
-            boolean categoryMatch = "All".equals(selectedCategory) || book.getCategory().equalsIgnoreCase(selectedCategory);
-            boolean titleMatch = searchText.isEmpty() || book.getTitle().toLowerCase().contains(searchText.toLowerCase());
-            return categoryMatch && titleMatch;
-        };
-        FilteredList<Book> filteredList = new FilteredList<>(FXCollections.observableArrayList(books));
-        filteredList.setPredicate(predicate);
-        tableView.setItems(filteredList);
-        tableView.refresh();
+        if (pager != null) {
+            pager.setFilter(searchText, selectedCategory);
+            return;
+        }
+        //Answered from the catalog's search index, and the table keeps its items list instead of getting a new one
+        List<Book> matches = BookCatalog.getInstance().search(searchText, selectedCategory);
+        tableView.getItems().setAll(matches);
     }
 
 
 
-    private static TableColumn<Book, ImageView> getBookImageViewTableColumn() {
-        TableColumn<Book, ImageView> imageCol = new TableColumn<>("Image");
-        imageCol.setCellValueFactory(new PropertyValueFactory<>("bookImageProperty"));
-        imageCol.setCellFactory(col -> new TableCell<Book, ImageView>() {
+    //Paged mode: the table holds a window of the catalog, the database sorts and the scroll position drives loading
+    private void setUpPaging() {
+        pager = new BookPager(tableView.getItems());
+        for (TableColumn<Book, ?> column : tableView.getColumns()) {
+            Object cellValueFactory = column.getCellValueFactory();
+            if (!(cellValueFactory instanceof PropertyValueFactory<?, ?> factory)
+                    || !BookPager.isSortable(factory.getProperty())) {
+                column.setSortable(false);
+            }
+        }
+        tableView.setSortPolicy(table -> {
+            if (table.getSortOrder().isEmpty()) {
+                pager.setSort("ISBN", true);
+            } else {
+                TableColumn<Book, ?> column = table.getSortOrder().get(0);
+                Object cellValueFactory = column.getCellValueFactory();
+                String property = ((PropertyValueFactory<?, ?>) cellValueFactory).getProperty();
+                pager.setSort(property, column.getSortType() == TableColumn.SortType.ASCENDING);
+            }
+            return true;
+        });
+        //Keep the rows the user is looking at in place when pages are added or dropped above them
+        pager.setOnShift(delta -> tableView.scrollTo(Math.max(0, firstVisibleIndex + delta)));
+        tableView.skinProperty().addListener((observable, oldSkin, newSkin) -> Platform.runLater(() -> {
+            VirtualFlow<?> flow = (VirtualFlow<?>) tableView.lookup(".virtual-flow");
+            if (flow == null) {
+                return;
+            }
+            flow.positionProperty().addListener((observable1, oldValue, newValue) -> {
+                IndexedCell<?> first = flow.getFirstVisibleCell();
+                IndexedCell<?> last = flow.getLastVisibleCell();
+                if (first == null || last == null) {
+                    return;
+                }
+                firstVisibleIndex = first.getIndex();
+                if (last.getIndex() >= tableView.getItems().size() - CATALOG_PAGE_SIZE / 2) {
+                    pager.loadNext();
+                } else if (first.getIndex() <= CATALOG_PAGE_SIZE / 2) {
+                    pager.loadPrevious();
+                }
+            });
+        }));
+    }
+
+    //The catalog table's columns, shared with TableScrollBenchmark so it measures the cells the view really uses.
+    //onToggle is told when a book's check box is ticked or cleared.
+    static List<TableColumn<Book, ?>> catalogColumns(BiConsumer<Book, Boolean> onToggle) {
+        TableColumn<Book, Boolean> selectCol = new TableColumn<>("");
+        selectCol.setSortable(false);
+        selectCol.setCellValueFactory(cellData -> cellData.getValue().selectedProperty());
+        selectCol.setCellFactory(col -> new BookSelectCell(onToggle));
+
+        TableColumn<Book, Long> isbnCol = new TableColumn<>("ISBN");
+        isbnCol.setCellValueFactory(
+                new PropertyValueFactory<>("ISBN"));
+        isbnCol.setMinWidth(115);
+
+        TableColumn<Book, String> authorCol = new TableColumn<>("Author");
+        authorCol.setCellValueFactory(
+                new PropertyValueFactory<>("author"));
+        authorCol.setMinWidth(115);
+
+        TableColumn<Book, String> categoryCol = new TableColumn<>("Category");
+        categoryCol.setCellValueFactory(
+                new PropertyValueFactory<>("category"));
+        categoryCol.setMinWidth(115);
+
+        TableColumn<Book, Integer> quantityCol = new TableColumn<>("Quantity");
+        quantityCol.setCellValueFactory(
+                new PropertyValueFactory<>("quantity"));
+        quantityCol.setMinWidth(115);
+
+        return List.of(selectCol, isbnCol, wrappingTextColumn("Title", "title", 115), authorCol,
+                categoryCol, wrappingTextColumn("Description", "description", 160), getBookImageViewTableColumn(), quantityCol);
+    }
+
+    private static TableColumn<Book, String> wrappingTextColumn(String title, String property, double minWidth) {
+        TableColumn<Book, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(new PropertyValueFactory<>(property));
+        column.setCellFactory(WrappingTextCell::new);
+        column.setMinWidth(minWidth);
+        return column;
+    }
+
+    private static TableColumn<Book, Book> getBookImageViewTableColumn() {
+        TableColumn<Book, Book> imageCol = new TableColumn<>("Image");
+        //Only the book is bound, the cover itself is decoded (or taken from ImageCache) when a visible cell asks for it
+        imageCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue()));
+        imageCol.setCellFactory(col -> new TableCell<Book, Book>() {
+            private final ImageView imageView = new ImageView();
+            {
+                imageView.setFitWidth(CoverImageLoader.THUMBNAIL_SIZE);
+                imageView.setFitHeight(CoverImageLoader.THUMBNAIL_SIZE);
+                imageView.setPreserveRatio(true);
+            }
+
             @Override
-            protected void updateItem(ImageView item, boolean empty) {
+            protected void updateItem(Book item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) {
+                    CoverImageLoader.clear(imageView);
                     setGraphic(null);
                 } else {
-                    ImageView imageView = new ImageView(item.getImage());
-                    imageView.setFitWidth(50);
-                    imageView.setFitHeight(50);
+                    CoverImageLoader.loadInto(imageView, item);
                     setGraphic(imageView);
                 }
             }
@@ -1,10 +1,15 @@
 package application.bookstore.views;
 
+import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.DataAccess;
+import application.bookstore.controllers.BookCatalog;
+import application.bookstore.controllers.SupplierRepository;
 import application.bookstore.models.Book;
 import application.bookstore.models.Supplier;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
@@ -17,6 +22,7 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.sql.SQLException;
 
 public class EditBookView {
     private GridPane pane;
@@ -68,7 +74,7 @@ public class EditBookView {
         addBook = new Button("Edit Book");
         addBook.setMinHeight(50);
         addBook.setMinWidth(150);
-        addBook.setOnAction(e -> {editBook(); stage.close();});
+        addBook.setOnAction(e -> editBook(stage));
         cancelButton = new Button("Cancel");
         cancelButton.setMinHeight(50);
         cancelButton.setMinWidth(150);
@@ -184,25 +190,41 @@ public class EditBookView {
             imageView.setImage(image);
         }
     }
-    public Book editBook() {
+    private void editBook(Stage stage) {
+        //Edits go into a draft so the shared catalog instance only changes once the database has them
+        Book draft;
         try {
-            book.setTitle(titleTextField.getText());
-            book.setAuthor(authorTextField.getText());
-            book.setCategory(categoryTextField.getText());
-            book.setDescription(descriptionTextField.getText());
-            book.setOriginalPrice(Double.parseDouble(originalPriceTextField.getText()));
-            book.setSellingPrice(Double.parseDouble(sellingPriceTextField.getText()));
-            book.setQuantity(Integer.parseInt(quantityTextField.getText()));
-            Supplier supplier = new Supplier(supplierNameTextField.getText() , supplierEmailTextField.getText() ,
-                    supplierPhoneLabel.getText() , supplierAddressTextField.getText());
-            supplier.findSupplierId();
-            book.setSupplier(supplier);
-            book.saveImageLocally(selectedImageFile);
-            book.updateInDatabase();
-            return book;
+            draft = new Book(book.getISBN(), titleTextField.getText(), authorTextField.getText(),
+                    categoryTextField.getText(), descriptionTextField.getText(), null,
+                    Double.parseDouble(originalPriceTextField.getText()),
+                    Double.parseDouble(sellingPriceTextField.getText()),
+                    Integer.parseInt(quantityTextField.getText()));
         } catch (NumberFormatException e) {
-            e.printStackTrace();
-            return null;
+            Alerts.showAlert(Alert.AlertType.ERROR , "Invalid Number" , "Please enter valid prices and quantity");
+            return;
         }
+        draft.setImageUrl(book.getImageUrl());
+        File imageFile = selectedImageFile;
+        Supplier supplier = new Supplier(supplierNameTextField.getText() , supplierEmailTextField.getText() ,
+                supplierPhoneLabel.getText() , supplierAddressTextField.getText());
+
+        //Resolving the supplier, storing the cover and the update all run on the data-access pool
+        hbox.setDisable(true);
+        DataAccess.submit(() -> {
+            SupplierRepository.getInstance().resolve(supplier);
+            draft.saveImageLocally(imageFile);
+            if (!draft.updateInDatabase()) {
+                throw new SQLException("No book with ISBN " + draft.getISBN() + " was updated");
+            }
+            return draft;
+        }, saved -> {
+            BookCatalog.copy(saved, book);
+            book.setSupplier(supplier);
+            BookCatalog.getInstance().put(book);
+            stage.close();
+        }, error -> {
+            hbox.setDisable(false);
+            Alerts.showAlert(Alert.AlertType.ERROR , "Book not saved" , "The book could not be updated: " + error.getMessage());
+        });
     }
 }
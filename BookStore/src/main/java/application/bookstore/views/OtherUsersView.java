@@ -1,17 +1,26 @@
 package application.bookstore.views;
 
+import application.bookstore.auxiliaries.Alerts;
+import application.bookstore.auxiliaries.ConnectionPool;
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.controllers.UserRoster;
 import application.bookstore.models.User;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 
 
 public class OtherUsersView implements DatabaseConnector {
@@ -30,18 +39,21 @@ public class OtherUsersView implements DatabaseConnector {
     public OtherUsersView(User admin) {
 
         this.currentAdmin = admin;
-        //Here we get the existing users from the database
-        try {
-            Connection connection = DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery("SELECT * FROM user");
+    }
+
+    //Here we get the existing users from the database
+    private List<User> loadUsers() throws SQLException {
+        List<User> loaded = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT * FROM user")) {
             //!!!!!!!!!!!note when the admin passes the role make sure it is in lowercase in the options
 
             while (resultSet.next()) {
                 //#TODO
                 //make sure not duplicated usernames
                 if(!(resultSet.getString("username").equals(currentAdmin.getUsername())))
-                    users.add(new User(
+                    loaded.add(new User(
                             new SimpleStringProperty(resultSet.getString("firstName")),
                             new SimpleStringProperty(resultSet.getString("lastName")),
                             new SimpleStringProperty(resultSet.getString("email")),
@@ -51,11 +63,10 @@ public class OtherUsersView implements DatabaseConnector {
                             new SimpleStringProperty(resultSet.getString("Role"))
                     ));
                 }
-        }catch (SQLException ex) {
-            System.out.println("Did not sign in to DB");
-            ex.printStackTrace();
         }
+        return loaded;
     }
+
     public Scene showView(Stage stage) {
 
         BorderPane borderPane=new BorderPane();
@@ -64,7 +75,10 @@ public class OtherUsersView implements DatabaseConnector {
 
         usersTableView=new UsersTableView(users);
 
-        borderPane.setTop(usersTableView);
+        //The table is shown right away and filled when the query on the data-access pool returns
+        Task<List<User>> load = DataAccess.submit(this::loadUsers, users::setAll,
+                error -> System.out.println("Did not sign in to DB"));
+        borderPane.setTop(new StackPane(usersTableView, DataAccess.busyIndicator(load)));
 
         Button backButton=new Button("Back");
 
@@ -75,7 +89,17 @@ public class OtherUsersView implements DatabaseConnector {
                         "-fx-font-size: 20px; "            // Font size
         );
 
-        borderPane.setBottom(backButton);
+        Button importButton=new Button("Import CSV");
+        importButton.setPadding(new Insets(20,20,20,20));
+        importButton.setStyle("-fx-font-size: 20px; ");
+        importButton.setOnAction(event -> importUsers(stage));
+        Button exportButton=new Button("Export CSV");
+        exportButton.setPadding(new Insets(20,20,20,20));
+        exportButton.setStyle("-fx-font-size: 20px; ");
+        exportButton.setOnAction(event -> exportUsers(stage));
+
+        HBox bottom=new HBox(20,backButton,importButton,exportButton);
+        borderPane.setBottom(bottom);
 
         // Set action for the button (you can replace this with your own action)
         backButton.setOnAction(event -> {
@@ -91,11 +115,54 @@ public class OtherUsersView implements DatabaseConnector {
 
 
         Scene scene = new Scene(borderPane, 1000, 700);
+        DataAccess.cancelOnLeave(load, scene);
 
         return scene;
     }
 
 
+    //Bulk onboarding from a roster file; the import runs on the data-access pool and the table is reloaded after
+    private void importUsers(Stage stage) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import users");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showOpenDialog(stage);
+        if (file == null) {
+            return;
+        }
+        UserRoster roster = new UserRoster();
+        DataAccess.submit(() -> {
+            roster.importCsv(file.toPath());
+            return roster;
+        }, done -> {
+            StringBuilder report = new StringBuilder("Imported " + done.getImportedCount() + " users, rejected "
+                    + done.getRejected().size() + " rows.");
+            done.getRejected().stream().limit(20).forEach(reason -> report.append("\n").append(reason));
+            if (done.getRejected().size() > 20) {
+                report.append("\n...");
+            }
+            Alerts.showAlert(Alert.AlertType.INFORMATION, "Import users", report.toString());
+            DataAccess.submit(this::loadUsers, users::setAll, error -> System.out.println("Did not sign in to DB"));
+        }, error -> Alerts.showAlert(Alert.AlertType.ERROR, "Import users", "The import stopped: " + error.getMessage()));
+    }
+
+    private void exportUsers(Stage stage) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export users");
+        chooser.setInitialFileName("users.csv");
+        File file = chooser.showSaveDialog(stage);
+        if (file == null) {
+            return;
+        }
+        UserRoster roster = new UserRoster();
+        DataAccess.submit(() -> {
+            roster.exportCsv(file.toPath());
+            return roster;
+        }, done -> Alerts.showAlert(Alert.AlertType.INFORMATION, "Export users",
+                "Exported " + done.getExportedCount() + " users to " + file),
+                error -> Alerts.showAlert(Alert.AlertType.ERROR, "Export users", "The export failed: " + error.getMessage()));
+    }
+
     public ObservableList<User> getUsers()
     {
         return users;
@@ -1,8 +1,10 @@
 package application.bookstore.views;
 
+import application.bookstore.auxiliaries.DataAccess;
 import application.bookstore.controllers.ProfileViewEditController;
 import application.bookstore.models.Role;
 import application.bookstore.models.User;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.application.Application;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -126,56 +128,7 @@ public class ProfileView {
                         pane.add(password_label, 0, 6);
                         pane.add(password, 1, 6);
 
-                        button.setOnAction(b -> {
-                            if (!old_first_name.equals(first_name.getText())) {
-                                ProfileViewEditController.changeName(first_name.getText(), user);
-                            }
-                            if (!old_surname.equals(surname.getText())) {
-                                ProfileViewEditController.changeSurname(surname.getText(), user);
-                            }
-                            if (!old_email.equals(email.getText())) {
-                                try {
-                                    ProfileViewEditController.changeEmail(email.getText(), user);
-                                } catch (Exception l) {
-                                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                                    alert.setHeaderText(l.getMessage());
-                                    alert.show();
-                                }
-                            }
-                            if (!old_username.equals(username.getText())) {
-                                try {
-                                    ProfileViewEditController.changeUsername(username.getText(), user);
-                                } catch (Exception l) {
-                                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                                    alert.setHeaderText(l.getMessage());
-                                    alert.show();
-                                }
-                            }
-                            if (!old_gender.equals(gender.getText())) {
-                                String enteredGender = gender.getText().trim(); // Remove leading/trailing spaces
-
-                                // Check if enteredGender is equal to "M", "F", or "U"
-                                if (enteredGender.equalsIgnoreCase("M") || enteredGender.equalsIgnoreCase("F") || enteredGender.equalsIgnoreCase("U")) {
-                                    // Valid gender entered
-                                    ProfileViewEditController.changeGender(enteredGender, user);
-                                } else {
-                                    // Invalid gender entered - show an error message or handle accordingly
-                                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                                    alert.setHeaderText("Invalid gender entered. Please enter 'M', 'F', or 'U'.");
-                                    alert.show();
-                                }
-                            }
-                            if (!(user.getPassword()).equals(password.getText()) && !(password.getText().isEmpty())) {
-                                try {
-                                    ProfileViewEditController.changePassword(password.getText(), user);
-                                } catch (Exception l) {
-                                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                                    alert.setHeaderText(l.getMessage());
-                                    alert.show();
-                                }
-                            }
-                            stage.close();
-                        });
+                        button.setOnAction(b -> confirmChanges(button, old_first_name, old_surname, old_email, old_username, old_gender, password));
                     }else{
                         Alert alert = new Alert(Alert.AlertType.ERROR);
                         alert.setHeaderText("Wrong Access Code");
@@ -205,59 +158,73 @@ public class ProfileView {
                 Label password_label = new Label("Password");
                 pane.add(password_label, 0, 6);
                 pane.add(password, 1, 6);
-                button.setOnAction(b -> {
-                    if (!old_first_name.equals(first_name.getText())) {
-                        ProfileViewEditController.changeName(first_name.getText(), user);
-                    }
-                    if (!old_surname.equals(surname.getText())) {
-                        ProfileViewEditController.changeSurname(surname.getText(), user);
-                    }
-                    if (!old_email.equals(email.getText())) {
-                        try {
-                            ProfileViewEditController.changeEmail(email.getText(), user);
-                        } catch (Exception l) {
-                            Alert alert = new Alert(Alert.AlertType.ERROR);
-                            alert.setHeaderText(l.getMessage());
-                            alert.show();
-                        }
-                    }
-                        if (!old_username.equals(username.getText())) {
-                            try {
-                                ProfileViewEditController.changeUsername(username.getText(), user);
-                            } catch (Exception l) {
-                                Alert alert = new Alert(Alert.AlertType.ERROR);
-                                alert.setHeaderText(l.getMessage());
-                                alert.show();
-                            }
-                        }
-                    if (!old_gender.equals(gender.getText())) {
-                        String enteredGender = gender.getText().trim(); // Remove leading/trailing spaces
-
-                        // Check if enteredGender is equal to "M", "F", or "U"
-                        if (enteredGender.equalsIgnoreCase("M") || enteredGender.equalsIgnoreCase("F") || enteredGender.equalsIgnoreCase("U")) {
-                            // Valid gender entered
-                            ProfileViewEditController.changeGender(enteredGender, user);
-                        } else {
-                            // Invalid gender entered - show an error message or handle accordingly
-                            Alert alert = new Alert(Alert.AlertType.ERROR);
-                            alert.setHeaderText("Invalid gender entered. Please enter 'M', 'F', or 'U'.");
-                            alert.show();
-                        }
-                    }
-                            if (!(user.getPassword()).equals(password.getText()) && !(password.getText().isEmpty())) {
-                                try {
-                                    ProfileViewEditController.changePassword(password.getText(), user);
-                                } catch (Exception l) {
-                                    Alert alert = new Alert(Alert.AlertType.ERROR);
-                                    alert.setHeaderText(l.getMessage());
-                                    alert.show();
-                                }
-                            }
-                            stage.close();
-                        });
+                button.setOnAction(b -> confirmChanges(button, old_first_name, old_surname, old_email, old_username, old_gender, password));
                 }
         });
         stage.setTitle("Profile");
         return new Scene(pane, 500, 500);
     }
+
+    //Each update matches the row on the values the one before it left, so they run in order on a copy of
+    //the user off the FX thread and the copy is applied to the signed-in user once they are all through
+    private void confirmChanges(Button button, String old_first_name, String old_surname, String old_email,
+                                String old_username, String old_gender, TextField password) {
+        String new_first_name = first_name.getText();
+        String new_surname = surname.getText();
+        String new_email = email.getText();
+        String new_username = username.getText();
+        String enteredGender = gender.getText().trim(); // Remove leading/trailing spaces
+        boolean genderEntered = !old_gender.equals(gender.getText());
+        // Check if enteredGender is equal to "M", "F", or "U"
+        boolean genderValid = enteredGender.equalsIgnoreCase("M") || enteredGender.equalsIgnoreCase("F") || enteredGender.equalsIgnoreCase("U");
+        if (genderEntered && !genderValid) {
+            // Invalid gender entered - show an error message and leave the gender as it was
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setHeaderText("Invalid gender entered. Please enter 'M', 'F', or 'U'.");
+            alert.show();
+        }
+        boolean genderChanged = genderEntered && genderValid;
+        String newPassword = password.getText();
+        User draft = new User(new SimpleStringProperty(user.getFirstName()), new SimpleStringProperty(user.getLastName()),
+                new SimpleStringProperty(user.getEmail()), new SimpleStringProperty(user.getUsername()),
+                new SimpleStringProperty(user.getPassword()), new SimpleStringProperty(user.getGender()),
+                new SimpleStringProperty(user.getRoleString()));
+
+        button.setDisable(true);
+        DataAccess.submit(() -> {
+            if (!old_first_name.equals(new_first_name)) {
+                ProfileViewEditController.changeName(new_first_name, draft);
+            }
+            if (!old_surname.equals(new_surname)) {
+                ProfileViewEditController.changeSurname(new_surname, draft);
+            }
+            if (!old_email.equals(new_email)) {
+                ProfileViewEditController.changeEmail(new_email, draft);
+            }
+            if (!old_username.equals(new_username)) {
+                ProfileViewEditController.changeUsername(new_username, draft);
+            }
+            if (genderChanged) {
+                ProfileViewEditController.changeGender(enteredGender, draft);
+            }
+            if (!newPassword.isEmpty()) {
+                //Hashing is slow on purpose, so it goes last
+                ProfileViewEditController.changePassword(newPassword, draft);
+            }
+            return draft;
+        }, saved -> {
+            user.setFirstName(saved.getFirstName());
+            user.setLastName(saved.getLastName());
+            user.setEmail(saved.getEmail());
+            user.setUsername(saved.getUsername());
+            user.setGender(saved.getGender());
+            user.setPassword(saved.getPassword());
+            stage.close();
+        }, l -> {
+            button.setDisable(false);
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setHeaderText(l.getMessage());
+            alert.show();
+        });
+    }
 }
@@ -0,0 +1,44 @@
+package application.bookstore.views;
+
+import application.bookstore.models.Book;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.SpinnerValueFactory;
+import javafx.scene.control.TableCell;
+
+//Basket quantity editor for a column whose values are Book.chosenQuantityProperty(). Each cell keeps one
+//Spinner and only moves its range and value to the book it shows, instead of a ChoiceBox filled with
+//an Integer item for every copy in stock. onChange runs after the user picks a new quantity.
+public class QuantitySpinnerCell extends TableCell<Book, Number> {
+    private final SpinnerValueFactory.IntegerSpinnerValueFactory values = new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 0);
+    private final Spinner<Integer> spinner = new Spinner<>(values);
+    private Book book;
+    //Set while the cell itself moves the spinner, so showing a book isn't taken for an edit
+    private boolean updating;
+
+    public QuantitySpinnerCell(Runnable onChange) {
+        spinner.setPrefWidth(100);
+        values.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!updating && book != null && newValue != null) {
+                book.setChosenQuantity(newValue);
+                onChange.run();
+            }
+        });
+    }
+
+    @Override
+    protected void updateItem(Number item, boolean empty) {
+        super.updateItem(item, empty);
+        int index = getIndex();
+        if (empty || getTableView() == null || index < 0 || index >= getTableView().getItems().size()) {
+            book = null;
+            setGraphic(null);
+            return;
+        }
+        book = getTableView().getItems().get(index);
+        updating = true;
+        values.setMax(book.getQuantity());
+        values.setValue(book.getChosenQuantity());
+        updating = false;
+        setGraphic(spinner);
+    }
+}
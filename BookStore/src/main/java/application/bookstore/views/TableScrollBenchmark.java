@@ -0,0 +1,111 @@
+package application.bookstore.views;
+
+import application.bookstore.models.Book;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Scene;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.stage.Stage;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+//Scrolls a catalog table built from BookView.catalogColumns through generated books, a fixed number of pixels
+//per frame, and reports what each frame allocated on the FX thread, how long it took and how many GCs ran.
+//The first WARMUP_FRAMES are left out so the cells and the JIT have settled. Needs a display; no database.
+//
+//  java application.bookstore.views.TableScrollBenchmark [books=5000] [frames=600] [pixelsPerFrame=40]
+public class TableScrollBenchmark {
+    private static final int WARMUP_FRAMES = 60;
+
+    public static void main(String[] args) throws InterruptedException {
+        int bookCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        double pixelsPerFrame = args.length > 2 ? Double.parseDouble(args[2]) : 40;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] allocated = new long[frames];
+        long[] nanos = new long[frames];
+        long[] gcsBefore = new long[1];
+        CountDownLatch done = new CountDownLatch(1);
+
+        Platform.startup(() -> {
+            ObservableList<Book> books = FXCollections.observableArrayList();
+            for (int i = 0; i < bookCount; i++) {
+                Book book = new Book(String.valueOf(9780000000000L + i), "Title " + i, "Author " + (i % 300),
+                        "Category " + (i % 12), "A description long enough to wrap over a couple of lines in the column, book " + i,
+                        10 + i % 40, 15 + i % 40, i % 25);
+                book.setSelected(i % 7 == 0);
+                books.add(book);
+            }
+            TableView<Book> table = new TableView<>(books);
+            table.getColumns().addAll(BookView.catalogColumns((book, selected) -> { }));
+            Stage stage = new Stage();
+            stage.setScene(new Scene(table, 1000, 700));
+            stage.show();
+
+            new AnimationTimer() {
+                private int frame = -WARMUP_FRAMES;
+                private long lastBytes;
+                private long lastNanos;
+
+                @Override
+                public void handle(long now) {
+                    //Everything between two calls (this scroll, then layout and rendering of the pulse) is one frame
+                    long bytes = threads.getCurrentThreadAllocatedBytes();
+                    if (frame == 0) {
+                        gcsBefore[0] = gcCount();
+                    } else if (frame > 0) {
+                        allocated[frame - 1] = bytes - lastBytes;
+                        nanos[frame - 1] = now - lastNanos;
+                    }
+                    if (frame == frames) {
+                        stop();
+                        stage.close();
+                        done.countDown();
+                        return;
+                    }
+                    VirtualFlow<?> flow = (VirtualFlow<?>) table.lookup(".virtual-flow");
+                    if (flow != null) {
+                        //Bounce between the ends so long runs keep scrolling
+                        double direction = (frame / 400) % 2 == 0 ? 1 : -1;
+                        flow.scrollPixels(direction * pixelsPerFrame);
+                    }
+                    frame++;
+                    lastBytes = threads.getCurrentThreadAllocatedBytes();
+                    lastNanos = now;
+                }
+            }.start();
+        });
+        done.await();
+        long gcs = gcCount() - gcsBefore[0];
+        Platform.exit();
+
+        long[] sortedBytes = allocated.clone();
+        Arrays.sort(sortedBytes);
+        long totalBytes = Arrays.stream(allocated).sum();
+        double averageMs = Arrays.stream(nanos).average().orElse(0) / 1_000_000.0;
+        System.out.println("Scrolled " + bookCount + " books for " + frames + " frames at " + pixelsPerFrame + " px/frame");
+        System.out.println("Allocated per frame: avg " + kb(totalBytes / frames) + ", median " + kb(sortedBytes[frames / 2])
+                + ", p95 " + kb(sortedBytes[(int) (frames * 0.95)]) + ", max " + kb(sortedBytes[frames - 1]));
+        System.out.println("Frame time avg " + String.format("%.2f", averageMs) + " ms, " + gcs + " GCs, "
+                + kb(totalBytes) + " allocated in total");
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static String kb(long bytes) {
+        return String.format("%.1f KB", bytes / 1024.0);
+    }
+}
@@ -1,9 +1,11 @@
 package application.bookstore.views;
 
 import application.bookstore.auxiliaries.DatabaseConnector;
+import application.bookstore.controllers.UserWriteBehind;
 import application.bookstore.controllers.UsersTableController;
 import application.bookstore.models.User;
 import application.bookstore.views.AddNewUserDialog;
+import javafx.beans.binding.Bindings;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -13,12 +15,15 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.Tooltip;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 
@@ -39,6 +44,7 @@ public class UsersTableView extends VBox implements DatabaseConnector {
     private Button addButton;
     private Button removeButton;
     private ObservableList<User> users;
+    private Label statusLabel;
 
     public UsersTableView(ObservableList<User> currentUsers) {
         this.users=currentUsers;
@@ -105,7 +111,9 @@ public class UsersTableView extends VBox implements DatabaseConnector {
         removeButton=new Button("Remove");
         removeButton.setPrefWidth(100);
         removeButton.setFont(Font.font(20));
-        hBox.getChildren().addAll(addButton,removeButton);
+        statusLabel=new Label();
+        statusLabel.setFont(Font.font(16));
+        hBox.getChildren().addAll(addButton,removeButton,statusLabel);
 
         getChildren().addAll(tableView,hBox);
 
@@ -113,6 +121,21 @@ public class UsersTableView extends VBox implements DatabaseConnector {
     }
 
 
+    //Shows how many users have unsaved edits and how many writes failed, with the last error as a tooltip
+    public void showWriteStatus(UserWriteBehind writeBehind) {
+        statusLabel.textProperty().bind(Bindings.createStringBinding(() -> {
+            int pending = writeBehind.pendingCountProperty().get();
+            int failed = writeBehind.failedCountProperty().get();
+            String text = pending == 0 ? "All changes saved" : pending + (pending == 1 ? " user" : " users") + " with unsaved changes";
+            return failed == 0 ? text : text + ", " + failed + " failed and reverted";
+        }, writeBehind.pendingCountProperty(), writeBehind.failedCountProperty()));
+        statusLabel.textFillProperty().bind(Bindings.when(writeBehind.failedCountProperty().greaterThan(0))
+                .then(Color.RED).otherwise(Color.GRAY));
+        Tooltip tooltip = new Tooltip();
+        tooltip.textProperty().bind(writeBehind.lastErrorProperty());
+        statusLabel.setTooltip(tooltip);
+    }
+
     public TableColumn<User, String> getFirstNameColumn()
     {
         return firstNameColumn;
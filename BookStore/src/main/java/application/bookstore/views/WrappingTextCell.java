@@ -0,0 +1,28 @@
+package application.bookstore.views;
+
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.text.Text;
+
+//Shows long text wrapped to the column width. Each cell keeps one Text node whose wrapping width is
+//bound to the column once, so scrolling only swaps the string instead of adding a node and a binding per row.
+public class WrappingTextCell<S> extends TableCell<S, String> {
+    private final Text text = new Text();
+
+    public WrappingTextCell(TableColumn<S, String> column) {
+        text.wrappingWidthProperty().bind(column.widthProperty());
+        setWrapText(true);
+    }
+
+    @Override
+    protected void updateItem(String item, boolean empty) {
+        super.updateItem(item, empty);
+        if (empty || item == null) {
+            text.setText(null);
+            setGraphic(null);
+        } else {
+            text.setText(item);
+            setGraphic(text);
+        }
+    }
+}
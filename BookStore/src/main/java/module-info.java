@@ -7,6 +7,8 @@ module application.bookstore {
     requires net.synedra.validatorfx;
     requires org.kordamp.bootstrapfx.core;
     requires java.sql;
+    requires java.desktop;
+    requires jdk.management;
 
     opens application.bookstore to java.base;
     exports application.bookstore;
@@ -0,0 +1,7 @@
+use bookstore;
+
+-- Lets BookCatalog ask for only the books changed since its last refresh
+ALTER TABLE Book
+  ADD COLUMN last_modified TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+
+CREATE INDEX idx_book_last_modified ON Book (last_modified);
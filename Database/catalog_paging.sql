@@ -0,0 +1,10 @@
+use bookstore;
+
+-- Keyset paging in BookPager orders by (column, ISBN) and seeks past the last row shown,
+-- so each sortable column needs a composite index ending in ISBN to read a page without a sort
+CREATE INDEX idx_book_name_isbn ON Book (name, ISBN);
+CREATE INDEX idx_book_author_isbn ON Book (author, ISBN);
+CREATE INDEX idx_book_category_isbn ON Book (category, ISBN);
+CREATE INDEX idx_book_quantity_isbn ON Book (quantity, ISBN);
+CREATE INDEX idx_book_selling_price_isbn ON Book (selling_price, ISBN);
+CREATE INDEX idx_book_original_price_isbn ON Book (original_price, ISBN);
@@ -0,0 +1,49 @@
+use bookstore;
+
+-- Covers are stored once per content hash by CoverStore as blobs/<2 hex>/<sha-256>.png under the image root,
+-- and Book.bookURL holds that path relative to the root. cover_hash is the ISBN -> hash mapping derived from it;
+-- older absolute "file:" URLs have none.
+
+-- finalDB.sql declares UNIQUE (bookURL), which would reject a second edition sharing a cover's blob.
+-- The index is looked up by column since its name depends on how the table was created; nothing is dropped
+-- if there is none.
+SET @bookurl_index = (SELECT INDEX_NAME FROM information_schema.statistics
+  WHERE TABLE_SCHEMA = DATABASE() AND LOWER(TABLE_NAME) = 'book' AND COLUMN_NAME = 'bookURL' AND NON_UNIQUE = 0
+  LIMIT 1);
+SET @drop_bookurl_index = IF(@bookurl_index IS NULL, 'DO 0', CONCAT('ALTER TABLE Book DROP INDEX `', @bookurl_index, '`'));
+PREPARE drop_bookurl_index FROM @drop_bookurl_index;
+EXECUTE drop_bookurl_index;
+DEALLOCATE PREPARE drop_bookurl_index;
+
+ALTER TABLE Book
+  ADD COLUMN cover_hash CHAR(64) AS (CASE WHEN bookURL LIKE 'blobs/%' THEN SUBSTRING(bookURL, 10, 64) END) STORED;
+
+CREATE INDEX idx_book_cover_hash ON Book (cover_hash);
+
+-- How many books use each blob, kept current by triggers since Book is also written by the bulk tools.
+-- A blob whose count drops to 0 is deleted by CoverStore.collectGarbage.
+CREATE TABLE cover_blob
+(
+  hash CHAR(64) NOT NULL,
+  refs INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (hash),
+  INDEX idx_cover_blob_refs (refs)
+);
+
+INSERT INTO cover_blob (hash, refs)
+  SELECT cover_hash, COUNT(*) FROM Book WHERE cover_hash IS NOT NULL GROUP BY cover_hash;
+
+CREATE TRIGGER book_cover_after_insert AFTER INSERT ON Book FOR EACH ROW
+  INSERT INTO cover_blob (hash, refs) SELECT NEW.cover_hash, 1 FROM DUAL WHERE NEW.cover_hash IS NOT NULL
+  ON DUPLICATE KEY UPDATE refs = refs + 1;
+
+CREATE TRIGGER book_cover_after_update_new AFTER UPDATE ON Book FOR EACH ROW
+  INSERT INTO cover_blob (hash, refs) SELECT NEW.cover_hash, 1 FROM DUAL
+  WHERE NEW.cover_hash IS NOT NULL AND NOT (OLD.cover_hash <=> NEW.cover_hash)
+  ON DUPLICATE KEY UPDATE refs = refs + 1;
+
+CREATE TRIGGER book_cover_after_update_old AFTER UPDATE ON Book FOR EACH ROW FOLLOWS book_cover_after_update_new
+  UPDATE cover_blob SET refs = refs - 1 WHERE hash = OLD.cover_hash AND NOT (OLD.cover_hash <=> NEW.cover_hash);
+
+CREATE TRIGGER book_cover_after_delete AFTER DELETE ON Book FOR EACH ROW
+  UPDATE cover_blob SET refs = refs - 1 WHERE hash = OLD.cover_hash;
@@ -0,0 +1,11 @@
+use bookstore;
+
+-- Orders whose lines are not yet in the sales rollups. The checkout transaction only inserts its orderId
+-- here; SalesRollups folds pending orders into the totals after the commit, so tills no longer queue on
+-- the sales_by_day and sales_by_user rows while holding their stock locks.
+CREATE TABLE sales_rollup_pending
+(
+  orderId INT NOT NULL,
+  PRIMARY KEY (orderId),
+  FOREIGN KEY (orderId) REFERENCES Bill (orderId)
+);
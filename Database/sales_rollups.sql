@@ -0,0 +1,55 @@
+use bookstore;
+
+-- Running totals kept by SalesRollups so the statistics charts read one row per book, day, supplier
+-- or user instead of aggregating every SoldBookType line. The checkout transaction only queues the sale in
+-- sales_rollup_pending (sales_rollup_outbox.sql); SalesRollups.applyPendingAsync adds it to these totals after
+-- the commit. Run SalesRollups.main to rebuild them from the sales history.
+CREATE TABLE sales_by_book
+(
+  ISBN varchar(30) NOT NULL,
+  units BIGINT NOT NULL DEFAULT 0,
+  profit DECIMAL(14,2) NOT NULL DEFAULT 0,
+  PRIMARY KEY (ISBN)
+);
+
+CREATE TABLE sales_by_day
+(
+  sale_date DATE NOT NULL,
+  bills INT NOT NULL DEFAULT 0,
+  units BIGINT NOT NULL DEFAULT 0,
+  profit DECIMAL(14,2) NOT NULL DEFAULT 0,
+  revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+  PRIMARY KEY (sale_date)
+);
+
+CREATE TABLE sales_by_supplier
+(
+  SupplierId INT NOT NULL,
+  units BIGINT NOT NULL DEFAULT 0,
+  profit DECIMAL(14,2) NOT NULL DEFAULT 0,
+  PRIMARY KEY (SupplierId)
+);
+
+CREATE TABLE sales_by_user
+(
+  username varchar(30) NOT NULL,
+  bills INT NOT NULL DEFAULT 0,
+  units BIGINT NOT NULL DEFAULT 0,
+  revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+  PRIMARY KEY (username)
+);
+
+-- Books per supplier for Chart3, kept current by triggers since supplies is also edited outside the app
+CREATE TABLE supplier_book_count
+(
+  SupplierId INT NOT NULL,
+  books INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (SupplierId)
+);
+
+CREATE TRIGGER supplies_after_insert AFTER INSERT ON supplies FOR EACH ROW
+  INSERT INTO supplier_book_count (SupplierId, books) VALUES (NEW.SupplierId, 1)
+  ON DUPLICATE KEY UPDATE books = books + 1;
+
+CREATE TRIGGER supplies_after_delete AFTER DELETE ON supplies FOR EACH ROW
+  UPDATE supplier_book_count SET books = books - 1 WHERE SupplierId = OLD.SupplierId;
@@ -0,0 +1,5 @@
+use bookstore;
+
+-- SalesStatistics filters bills with "date >= ? AND date < ?"; this index turns that into a range scan
+-- over the chosen window, and the lines are then found through the SoldBookType.orderId key
+CREATE INDEX idx_bill_date ON Bill (date);
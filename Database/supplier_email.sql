@@ -0,0 +1,11 @@
+use bookstore;
+
+-- SupplierRepository finds or creates a supplier with one INSERT ... ON DUPLICATE KEY UPDATE on the email.
+-- finalDB.sql already declares UNIQUE (email), so the index is only added when the email column has
+-- no unique index yet, e.g. on databases created without it.
+SET @supplier_email_unique = (SELECT COUNT(*) FROM information_schema.statistics
+  WHERE TABLE_SCHEMA = DATABASE() AND LOWER(TABLE_NAME) = 'supplier' AND COLUMN_NAME = 'email' AND NON_UNIQUE = 0);
+SET @add_supplier_email_index = IF(@supplier_email_unique > 0, 'DO 0', 'ALTER TABLE Supplier ADD UNIQUE INDEX uq_supplier_email (email)');
+PREPARE add_supplier_email_index FROM @add_supplier_email_index;
+EXECUTE add_supplier_email_index;
+DEALLOCATE PREPARE add_supplier_email_index;
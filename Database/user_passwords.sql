@@ -0,0 +1,9 @@
+use bookstore;
+
+-- Passwords are stored as salted PBKDF2 hashes (PasswordHasher), which are longer than 30 characters.
+-- Two users may share a password, so the unique index on it goes.
+ALTER TABLE User DROP INDEX password;
+ALTER TABLE User MODIFY password varchar(255) NOT NULL;
+
+-- Plain text passwords are replaced on each user's next login,
+-- or all at once with: java application.bookstore.controllers.AuthService
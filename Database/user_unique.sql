@@ -0,0 +1,12 @@
+use bookstore;
+
+-- Usernames are the primary key. Email must be unique too, so a second till can't insert
+-- the same address between the dialog's check and the insert (AddNewUserController.insertUser).
+-- finalDB.sql already declares UNIQUE (email), so the index is only added when the email column has
+-- no unique index yet, e.g. on databases created without it.
+SET @user_email_unique = (SELECT COUNT(*) FROM information_schema.statistics
+  WHERE TABLE_SCHEMA = DATABASE() AND LOWER(TABLE_NAME) = 'user' AND COLUMN_NAME = 'email' AND NON_UNIQUE = 0);
+SET @add_user_email_index = IF(@user_email_unique > 0, 'DO 0', 'ALTER TABLE User ADD UNIQUE INDEX uq_user_email (email)');
+PREPARE add_user_email_index FROM @add_user_email_index;
+EXECUTE add_user_email_index;
+DEALLOCATE PREPARE add_user_email_index;